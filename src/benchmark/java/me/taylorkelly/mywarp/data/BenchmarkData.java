@@ -0,0 +1,153 @@
+package me.taylorkelly.mywarp.data;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import me.taylorkelly.mywarp.MyWarp;
+import me.taylorkelly.mywarp.WarpSettings;
+import me.taylorkelly.mywarp.permissions.WarpPermissions;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+
+/**
+ * Synthetic warps and stubbed Bukkit objects for the benchmarks. The stubs
+ * are dynamic proxies that answer the few methods MyWarp calls and return
+ * defaults for everything else.
+ */
+public class BenchmarkData {
+    private static final String[] WORDS = { "spawn", "shop", "mine", "farm", "home", "arena", "nether", "castle",
+            "tower", "lake", "village", "portal" };
+
+    private static Server server;
+
+    /**
+     * Builds a warp list with the given number of warps. Every creator owns
+     * 20 warps, a fifth of them private with two invited players.
+     */
+    public static WarpList createWarpList(int count) {
+        WarpList warpList = new WarpList(getServer(), null);
+        warpList.load(createWarps(count));
+        return warpList;
+    }
+
+    public static HashMap<String, Warp> createWarps(int count) {
+        Random random = new Random(42);
+        int creators = Math.max(1, count / 20);
+        HashMap<String, Warp> warps = new HashMap<String, Warp>();
+        for (int i = 1; i <= count; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String creator = creatorName(random.nextInt(creators));
+            boolean publicAll = random.nextInt(5) != 0;
+            String permissions = publicAll ? "" : creatorName(random.nextInt(creators)) + ","
+                    + creatorName(random.nextInt(creators)) + ",";
+            Warp warp = new Warp(i, name, creator, "world", random.nextDouble() * 10000, 64,
+                    random.nextDouble() * 10000, 0, 0, publicAll, permissions, "Welcome to '" + name + "'");
+            warps.put(name, warp);
+        }
+        return warps;
+    }
+
+    public static String creatorName(int index) {
+        return "Player" + index;
+    }
+
+    public static Player createPlayer(String name, boolean op) {
+        Map<String, Object> answers = new HashMap<String, Object>();
+        answers.put("getName", name);
+        answers.put("getDisplayName", name);
+        answers.put("isOp", op);
+        return stub(Player.class, answers);
+    }
+
+    public static synchronized Server getServer() {
+        if (server == null) {
+            Map<String, Object> answers = new HashMap<String, Object>();
+            answers.put("getName", "Benchmark");
+            answers.put("getVersion", "benchmark");
+            answers.put("getBukkitVersion", "benchmark");
+            answers.put("getLogger", Logger.getLogger("Benchmark"));
+            answers.put("getOnlinePlayers", new Player[0]);
+            answers.put("getPluginManager", stub(PluginManager.class, new HashMap<String, Object>()));
+            answers.put("getServicesManager", stub(ServicesManager.class, new HashMap<String, Object>()));
+            server = stub(Server.class, answers);
+            if (Bukkit.getServer() == null) {
+                Bukkit.setServer(server);
+            }
+            installPermissions(server);
+        }
+        return server;
+    }
+
+    /**
+     * MyWarp only sets up its permissions in onEnable, so the field is set
+     * directly. Without a permissions plugin the handler falls back to
+     * SuperPerms, which only asks the player stubs.
+     */
+    private static void installPermissions(Server server) {
+        WarpSettings.opPermissions = true;
+        WarpSettings.adminPrivateWarps = true;
+        Map<String, Object> answers = new HashMap<String, Object>();
+        answers.put("getServer", server);
+        answers.put("getName", "MyWarp");
+        answers.put("isEnabled", true);
+        Plugin plugin = stub(Plugin.class, answers);
+        try {
+            Field field = MyWarp.class.getDeclaredField("warpPermissions");
+            field.setAccessible(true);
+            field.set(null, new WarpPermissions(plugin));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not install the warp permissions", e);
+        }
+    }
+
+    private static <T> T stub(Class<T> type, final Map<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (answers.containsKey(method.getName())) {
+                            return answers.get(method.getName());
+                        }
+                        if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The warp list lookups behind the list, search and warp commands, once for
+ * a regular player and once for an admin who sees every warp.
+ *
+ * The player's warp access and list view are cached, so the lookups that
+ * use them come in two variants: the cold ones drop the caches before every
+ * call and measure the filtering, sorting and formatting, the cached ones
+ * measure repeated calls like paging through a list.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WarpListBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int warps;
+
+    @Param({ "false", "true" })
+    public boolean admin;
+
+    private WarpList warpList;
+    private Player player;
+    private String creator;
+    private Lister lister;
+
+    @Setup
+    public void setup() {
+        warpList = BenchmarkData.createWarpList(warps);
+        player = BenchmarkData.createPlayer(BenchmarkData.creatorName(1), admin);
+        creator = BenchmarkData.creatorName(0);
+        lister = new Lister(warpList);
+        lister.addPlayer(player);
+        lister.setPage(2);
+    }
+
+    @Benchmark
+    public void getMatches(Blackhole blackhole) {
+        // one exact and one partial lookup, like /warp <name> and /warp search
+        blackhole.consume(warpList.getMatches("castle 7", player));
+        blackhole.consume(warpList.getMatches("tow", player));
+    }
+
+    @Benchmark
+    public List<Warp> getSortedWarps(ColdCaches cold) {
+        return warpList.getSortedWarpsPerCreator(player, null, 80, 8);
+    }
+
+    @Benchmark
+    public List<Warp> getSortedWarpsCached() {
+        return warpList.getSortedWarpsPerCreator(player, null, 80, 8);
+    }
+
+    @Benchmark
+    public List<Warp> getSortedWarpsPerCreator(ColdCaches cold) {
+        return warpList.getSortedWarpsPerCreator(player, creator, 0, 8);
+    }
+
+    @Benchmark
+    public List<Warp> getSortedWarpsPerCreatorCached() {
+        return warpList.getSortedWarpsPerCreator(player, creator, 0, 8);
+    }
+
+    @Benchmark
+    public double getMaxWarps(ColdCaches cold) {
+        return warpList.getMaxWarps(player);
+    }
+
+    @Benchmark
+    public double getMaxWarpsCached() {
+        return warpList.getMaxWarps(player);
+    }
+
+    @Benchmark
+    public String getMatchingCreator() {
+        return warpList.getMatchingCreator(player, "layer0");
+    }
+
+    @Benchmark
+    public void listPage() {
+        Lister pageLister = new Lister(warpList);
+        pageLister.addPlayer(player);
+        pageLister.setPage(2);
+        pageLister.list();
+    }
+
+    @Benchmark
+    public void listFormatting(ColdCaches cold) {
+        lister.list();
+    }
+
+    @Benchmark
+    public void listFormattingCached() {
+        lister.list();
+    }
+
+    /**
+     * Drops the player's cached access and view before every call of a cold
+     * benchmark.
+     */
+    @State(Scope.Thread)
+    public static class ColdCaches {
+        @Setup(Level.Invocation)
+        public void invalidate(WarpListBenchmark benchmark) {
+            benchmark.warpList.invalidateAccess(benchmark.player.getName());
+        }
+    }
+}
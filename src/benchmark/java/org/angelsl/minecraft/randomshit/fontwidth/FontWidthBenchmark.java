@@ -0,0 +1,38 @@
+package org.angelsl.minecraft.randomshit.fontwidth;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Width of a typical line of the warp list, the calculation runs several
+ * times for every listed warp.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FontWidthBenchmark {
+    private String line = "'castle 1234' (+) by Player42 @(1024, 64, -2048)";
+    private String accented = "Übersicht der Wärps für Spieler mit Ümlauten";
+
+    @Benchmark
+    public int getStringWidth() {
+        return MinecraftFontWidthCalculator.getStringWidth(line);
+    }
+
+    @Benchmark
+    public int getStringWidthAccented() {
+        return MinecraftFontWidthCalculator.getStringWidth(accented);
+    }
+}
@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.sql.Connection;
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,27 +13,38 @@ import me.taylorkelly.mywarp.commands.CommandHandler;
 import me.taylorkelly.mywarp.commands.CreateCommand;
 import me.taylorkelly.mywarp.commands.CreatePrivateCommand;
 import me.taylorkelly.mywarp.commands.DeleteCommand;
+import me.taylorkelly.mywarp.commands.GroupWarpToCommand;
 import me.taylorkelly.mywarp.commands.GiveCommand;
 import me.taylorkelly.mywarp.commands.HelpCommand;
 import me.taylorkelly.mywarp.commands.InviteCommand;
 import me.taylorkelly.mywarp.commands.ListCommand;
+import me.taylorkelly.mywarp.commands.NearCommand;
+import me.taylorkelly.mywarp.commands.PageCommand;
 import me.taylorkelly.mywarp.commands.PointCommand;
 import me.taylorkelly.mywarp.commands.PrivateCommand;
 import me.taylorkelly.mywarp.commands.PublicCommand;
 import me.taylorkelly.mywarp.commands.ReloadCommand;
 import me.taylorkelly.mywarp.commands.ListAllCommand;
 import me.taylorkelly.mywarp.commands.SearchCommand;
+import me.taylorkelly.mywarp.commands.StatsCommand;
 import me.taylorkelly.mywarp.commands.UninviteCommand;
 import me.taylorkelly.mywarp.commands.WarpToCommand;
 import me.taylorkelly.mywarp.commands.WelcomeCommand;
+import me.taylorkelly.mywarp.data.HotWarpChunks;
+import me.taylorkelly.mywarp.data.TeleportScheduler;
+import me.taylorkelly.mywarp.data.Warp;
 import me.taylorkelly.mywarp.data.WarpList;
+import me.taylorkelly.mywarp.data.WarpTeleporter;
 import me.taylorkelly.mywarp.griefcraft.Updater;
 import me.taylorkelly.mywarp.listeners.MWBlockListener;
 import me.taylorkelly.mywarp.listeners.MWPlayerListener;
+import me.taylorkelly.mywarp.listeners.MWWorldListener;
 import me.taylorkelly.mywarp.permissions.WarpPermissions;
 import me.taylorkelly.mywarp.sql.ConnectionManager;
+import me.taylorkelly.mywarp.sql.WarpDataSource;
 import me.taylorkelly.mywarp.utils.WarpLogger;
 
+import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.PluginManager;
@@ -42,8 +53,11 @@ import org.bukkit.plugin.java.JavaPlugin;
 public class MyWarp extends JavaPlugin {
 
     private WarpList warpList;
+    private WarpTeleporter teleporter;
+    private TeleportScheduler teleportScheduler;
     private MWPlayerListener playerListener;
     private MWBlockListener blockListener;
+    private MWWorldListener worldListener;
     public String name;
     public String version;
     private Updater updater;
@@ -53,6 +67,10 @@ public class MyWarp extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (warpList != null) {
+            warpList.getSigns().flush();
+        }
+        WarpDataSource.shutdown();
         ConnectionManager.closeConnection();
     }
 
@@ -65,28 +83,45 @@ public class MyWarp extends JavaPlugin {
         WarpSettings.initialize(this);
         
         libCheck();
-        if(!sqlCheck()) { return; }
 
+        // copied before the pool opens the database, which would create an
+        // empty warps.db otherwise
         File newDatabase = new File(getDataFolder(), "warps.db");
         File oldDatabase = new File("homes-warps.db");
         if (!newDatabase.exists() && oldDatabase.exists()) {
             updateFiles(oldDatabase, newDatabase);
         }
 
-        Connection conn = ConnectionManager.initialize();
-        if (conn == null) {
-            WarpLogger.severe("Could not establish SQL connection. Disabling MyWarp");
-            getServer().getPluginManager().disablePlugin(this);
-            return;
-        }
+        if(!sqlCheck()) { return; }
 
-        warpList = new WarpList(getServer());
+        WarpDataSource.initialize();
+        teleporter = new WarpTeleporter(this);
+        HotWarpChunks hotChunks = new HotWarpChunks(this);
+        hotChunks.start();
+        teleportScheduler = new TeleportScheduler(this, teleporter, hotChunks);
+        teleportScheduler.start();
+        warpList = new WarpList(getServer(), teleportScheduler);
+        warpList.getSigns().load(new File(getDataFolder(), "signs.yml"));
+        warpList.getSigns().start(this);
+        if (WarpSettings.asyncLoad) {
+            loadWarpsAsync();
+        } else {
+            warpList.load(WarpDataSource.getMap());
+        }
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, new Runnable() {
+            @Override
+            public void run() {
+                warpList.publishSnapshot();
+            }
+        }, 1L, 1L);
         warpPermissions = new WarpPermissions(this);        
         blockListener = new MWBlockListener(this);
         playerListener = new MWPlayerListener(this);
+        worldListener = new MWWorldListener(this);
 
         pm.registerEvents(blockListener, this);
         pm.registerEvents(playerListener, this);
+        pm.registerEvents(worldListener, this);
 
         commandHandler = new CommandHandler(this);
         
@@ -96,6 +131,8 @@ public class MyWarp extends JavaPlugin {
         commandHandler.addCommand(new DeleteCommand(this));
         commandHandler.addCommand(new ListCommand(this));
         commandHandler.addCommand(new ListAllCommand(this));
+        commandHandler.addCommand(new NearCommand(this));
+        commandHandler.addCommand(new PageCommand(this));
         commandHandler.addCommand(new PointCommand(this));
         commandHandler.addCommand(new SearchCommand(this));
         commandHandler.addCommand(new WelcomeCommand(this));
@@ -113,7 +150,9 @@ public class MyWarp extends JavaPlugin {
 
         // admin commands
         commandHandler.addCommand(new AdminWarpToCommand(this));
+        commandHandler.addCommand(new GroupWarpToCommand(this));
         commandHandler.addCommand(new ReloadCommand(this));
+        commandHandler.addCommand(new StatsCommand(this));
 
         WarpLogger.info(name + " " + version + " enabled");
     }
@@ -128,9 +167,29 @@ public class MyWarp extends JavaPlugin {
         }
     }
     
+    /**
+     * Reads the warps on another thread and hands them to the warp list on
+     * the main thread once they are all decoded.
+     */
+    private void loadWarpsAsync() {
+        final MyWarp plugin = this;
+        WarpLogger.info("Loading warps in the background");
+        getServer().getScheduler().scheduleAsyncDelayedTask(this, new Runnable() {
+            @Override
+            public void run() {
+                final HashMap<String, Warp> warps = WarpDataSource.getMap();
+                getServer().getScheduler().scheduleSyncDelayedTask(plugin, new Runnable() {
+                    @Override
+                    public void run() {
+                        warpList.load(warps);
+                    }
+                });
+            }
+        });
+    }
+
     private boolean sqlCheck() {
-        Connection conn = ConnectionManager.initialize();
-        if (conn == null) {
+        if (!ConnectionManager.initialize()) {
             WarpLogger.severe("Could not establish SQL connection. Disabling MyWarp");
             getServer().getPluginManager().disablePlugin(this);
             return false;
@@ -190,6 +249,10 @@ public class MyWarp extends JavaPlugin {
     
     @Override
     public boolean onCommand(CommandSender sender, Command command, String commandLabel, String[] args) {
+        if (!warpList.isLoaded()) {
+            sender.sendMessage(ChatColor.RED + "Warps are still loading, please try again in a moment.");
+            return true;
+        }
         return commandHandler.dispatch(sender, command, commandLabel, args);
     }
 
@@ -210,6 +273,14 @@ public class MyWarp extends JavaPlugin {
         return warpList;
     }
     
+    public WarpTeleporter getTeleporter() {
+        return teleporter;
+    }
+
+    public TeleportScheduler getTeleportScheduler() {
+        return teleportScheduler;
+    }
+
     public CommandHandler getCommandHandler() {
         return commandHandler;
     }
@@ -23,11 +23,23 @@ public class WarpSettings {
     public static boolean adminsObeyLimits;
     public static boolean adminPrivateWarps;
     public static boolean loadChunks;
+    public static int writeBehindDelay;
+    public static int loadFetchSize;
+    public static boolean asyncLoad;
+    public static int permissionCacheTtl;
+    public static int welcomeTimeout;
+    public static int teleportsPerTick;
+    public static int teleportTickBudget;
+    public static int hotWarps;
+    public static int hotWarpArrivals;
+    public static int hotWarpRadius;
+    public static int maxPinnedChunks;
     
     public static boolean usemySQL;
     public static String mySQLuname;
     public static String mySQLpass;
     public static String mySQLconn;
+    public static int mySQLpoolSize;
 
     public static boolean opPermissions;
     private static FileConfiguration config;
@@ -78,15 +90,38 @@ public class WarpSettings {
         adminsObeyLimits = config.getBoolean("adminsObeyLimits");
         adminPrivateWarps = config.getBoolean("adminPrivateWarps");
         loadChunks = config.getBoolean("loadChunks");
+        writeBehindDelay = config.getInt("writeBehindDelay");
+        loadFetchSize = config.getInt("loadFetchSize");
+        asyncLoad = config.getBoolean("asyncLoad");
+        permissionCacheTtl = config.getInt("permissionCacheTtl");
+        welcomeTimeout = config.getInt("welcomeTimeout");
+        teleportsPerTick = atLeastOne("teleportsPerTick", config.getInt("teleportsPerTick"));
+        teleportTickBudget = atLeastOne("teleportTickBudget", config.getInt("teleportTickBudget"));
+        hotWarps = config.getInt("hotWarps");
+        hotWarpArrivals = config.getInt("hotWarpArrivals");
+        hotWarpRadius = config.getInt("hotWarpRadius");
+        maxPinnedChunks = config.getInt("maxPinnedChunks");
         
         usemySQL = config.getBoolean("usemySQL");
         mySQLconn = config.getString("mySQLconn");
         mySQLuname = config.getString("mySQLuname");
         mySQLpass = config.getString("mySQLpass");
+        mySQLpoolSize = config.getInt("mySQLpoolSize");
         
         opPermissions = config.getBoolean("opPermissions");
     }
     
+    /**
+     * Keeps settings that would stop teleports altogether at 1.
+     */
+    private static int atLeastOne(String key, int value) {
+        if (value < 1) {
+            WarpLogger.warning(key + " is " + value + " in the config, using 1 instead");
+            return 1;
+        }
+        return value;
+    }
+    
     private static FileConfiguration getConfig(File file)
     {
         FileConfiguration config = null;
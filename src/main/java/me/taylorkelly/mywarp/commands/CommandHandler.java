@@ -17,25 +17,45 @@ import java.util.Map;
 import me.taylorkelly.mywarp.MyWarp;
 import me.taylorkelly.mywarp.permissions.WarpPermissions;
 
+import org.apache.commons.lang.StringUtils;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 public class CommandHandler {
 
+    private static final String[] WARP_IDENTIFIER = { "warp" };
+
+    private MyWarp plugin;
     private WarpPermissions warpPermissions;
     protected Map<String, Command> commands;
+    private IdentifierTrie identifiers;
 
     public CommandHandler(MyWarp plugin) {
+        this.plugin = plugin;
         warpPermissions = MyWarp.getWarpPermissions();
         commands = new LinkedHashMap<String, Command>();
+        identifiers = new IdentifierTrie();
     }
 
     public void addCommand(Command command) {
         commands.put(command.getName().toLowerCase(), command);
+        rebuildIdentifiers();
     }
 
     public void removeCommand(Command command) {
         commands.remove(command.getName().toLowerCase());
+        rebuildIdentifiers();
+    }
+
+    /**
+     * Commands replaced under the same name keep their position, so the trie
+     * is built again in registration order.
+     */
+    private void rebuildIdentifiers() {
+        identifiers.clear();
+        for (Command command : commands.values()) {
+            identifiers.add(command);
+        }
     }
 
     public Command getCommand(String name) {
@@ -48,52 +68,80 @@ public class CommandHandler {
 
     public boolean dispatch(CommandSender sender, org.bukkit.command.Command command, String label, String[] args) {
       
-    	String[] arguments;
-        if (args.length < 1) {
+    	String[] arguments = stripEmpty(args);
+        if (arguments.length < 1) {
             arguments = new String[] { "help" };
-        } else {
-        	arguments = args;
         }
         
-        for (int argsIncluded = arguments.length; argsIncluded >= 0; argsIncluded--) {
-        	StringBuilder identifierBuilder = new StringBuilder();
-            for (int i = 0; i < argsIncluded; i++) {
-            	identifierBuilder.append(' ').append(arguments[i]);
-            }
-            
-            String identifier = identifierBuilder.toString().trim();            
-            if (identifier.isEmpty()) {
-                identifier = "warp";
+        Command cmd;
+        int argsIncluded;
+        String identifier;
+        IdentifierTrie.Match match = identifiers.find(arguments);
+        if (match != null && !isWarpName(match, arguments, sender)) {
+            cmd = match.command;
+            argsIncluded = match.length;
+            identifier = StringUtils.join(arguments, ' ', 0, argsIncluded);
+        } else {
+            // everything else is the name of a warp
+            match = identifiers.find(WARP_IDENTIFIER);
+            if (match == null) {
+                return true;
             }
-            
-            for (Command cmd : commands.values()) {
-                if (cmd.isIdentifier(sender, identifier)) {
-                    String[] realArgs = Arrays.copyOfRange(arguments, argsIncluded, arguments.length);
-
-                    if (!cmd.isInProgress(sender)) {
-                        if (realArgs.length < cmd.getMinArguments() || realArgs.length > cmd.getMaxArguments()) {
-                            displayCommandHelp(cmd, sender);
-                            return true;
-                        } else if (realArgs.length > 0 && "?".equals(realArgs[0])) {
-                            displayCommandHelp(cmd, sender);
-                            return true;
-                        }
-                    }
-
-                    if (!hasPermission(sender, cmd.getPermission())) {
-                        sender.sendMessage("Insufficient permission.");
-                        return true;
-                    }
-
-                    cmd.execute(sender, identifier, realArgs);
-                    return true;
-                }
+            cmd = match.command;
+            argsIncluded = 0;
+            identifier = "warp";
+        }
+
+        String[] realArgs = Arrays.copyOfRange(arguments, argsIncluded, arguments.length);
+
+        if (!cmd.isInProgress(sender)) {
+            if (realArgs.length < cmd.getMinArguments() || realArgs.length > cmd.getMaxArguments()) {
+                displayCommandHelp(cmd, sender);
+                return true;
+            } else if (realArgs.length > 0 && "?".equals(realArgs[0])) {
+                displayCommandHelp(cmd, sender);
+                return true;
             }
         }
 
+        if (!hasPermission(sender, cmd.getPermission())) {
+            sender.sendMessage("Insufficient permission.");
+            return true;
+        }
+
+        cmd.execute(sender, identifier, realArgs);
         return true;
     }
 
+    /**
+     * Whether the arguments are rather the name of an existing warp than a
+     * call of the matched command, because they don't fit the command's
+     * number of arguments. Warps named like a command that fits can still be
+     * reached with /warp warp <name>.
+     */
+    private boolean isWarpName(IdentifierTrie.Match match, String[] arguments, CommandSender sender) {
+        int count = arguments.length - match.length;
+        if (match.command.isInProgress(sender)
+                || (count >= match.command.getMinArguments() && count <= match.command.getMaxArguments())) {
+            return false;
+        }
+        return plugin.getWarpList().getWarp(StringUtils.join(arguments, ' ')) != null;
+    }
+
+    /**
+     * Drops the empty arguments Bukkit leaves for double spaces, so they
+     * neither break identifiers nor count as arguments.
+     */
+    private static String[] stripEmpty(String[] args) {
+        List<String> ret = new ArrayList<String>(args.length);
+        for (String arg : args) {
+            if (!arg.isEmpty()) {
+                ret.add(arg);
+            }
+        }
+        return ret.toArray(new String[ret.size()]);
+    }
+
     private void displayCommandHelp(Command cmd, CommandSender sender) {
         sender.sendMessage("§cCommand:§e " + cmd.getName());
         sender.sendMessage("§cDescription:§e " + cmd.getDescription());
@@ -0,0 +1,52 @@
+package me.taylorkelly.mywarp.commands;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.taylorkelly.mywarp.MyWarp;
+
+import org.apache.commons.lang.StringUtils;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+public class GroupWarpToCommand extends BasicCommand implements Command
+{
+    private MyWarp plugin;
+
+    public GroupWarpToCommand(MyWarp plugin)
+    {
+        super("WarpGroup");
+        this.plugin = plugin;
+        setDescription("Warp everyone in §8<world>§e (or everyone online with *) to §9<name>");
+        setUsage("/warp group §8<world|*> §9<name>");
+        setArgumentRange(2, 255);
+        setIdentifiers("group");
+        setPermission("mywarp.admin");
+    }
+
+    @Override
+    public boolean execute(CommandSender executor, String identifier, String[] args)
+    {
+        if (executor instanceof Player) {
+            List<Player> players;
+            if (args[0].equals("*")) {
+                players = Arrays.asList(plugin.getServer().getOnlinePlayers());
+            } else {
+                World world = plugin.getServer().getWorld(args[0]);
+                if (world == null) {
+                    executor.sendMessage(ChatColor.RED + "World " + args[0] + " doesn't exist.");
+                    return true;
+                }
+                players = new ArrayList<Player>(world.getPlayers());
+            }
+            plugin.getWarpList().adminWarpTo(StringUtils.join(Arrays.asList(args).subList(1, args.length), ' '), players, (Player) executor);
+        }
+        else {
+            executor.sendMessage("Console cannot warp players to locations!");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package me.taylorkelly.mywarp.commands;
+
+import java.util.TreeMap;
+
+/**
+ * The identifiers of all commands, split into their words. Looking up the
+ * command for the arguments of /warp walks the arguments once and finds the
+ * longest identifier they start with.
+ *
+ * Words are compared ignoring case. If several commands have the same
+ * identifier, the one added first wins.
+ */
+class IdentifierTrie {
+    private final Node root = new Node();
+
+    void add(Command command) {
+        for (String identifier : command.getIdentifiers()) {
+            Node node = root;
+            for (String word : identifier.trim().split(" +")) {
+                Node child = node.children.get(word);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(word, child);
+                }
+                node = child;
+            }
+            if (node.command == null) {
+                node.command = command;
+            }
+        }
+    }
+
+    void clear() {
+        root.children.clear();
+    }
+
+    /**
+     * Finds the command with the longest identifier the given arguments start
+     * with.
+     *
+     * @return the command, or null if no identifier matches
+     */
+    Match find(String[] args) {
+        Node node = root;
+        Match ret = null;
+        for (int i = 0; i < args.length; i++) {
+            node = node.children.get(args[i]);
+            if (node == null) {
+                break;
+            }
+            if (node.command != null) {
+                ret = new Match(node.command, i + 1);
+            }
+        }
+        return ret;
+    }
+
+    static class Match {
+        final Command command;
+        /** the number of arguments that belong to the identifier */
+        final int length;
+
+        private Match(Command command, int length) {
+            this.command = command;
+            this.length = length;
+        }
+    }
+
+    private static class Node {
+        private final TreeMap<String, Node> children = new TreeMap<String, Node>(String.CASE_INSENSITIVE_ORDER);
+        private Command command;
+    }
+}
@@ -26,8 +26,8 @@ public class ListCommand extends BasicCommand implements Command
     public boolean execute(CommandSender executor, String identifier, String[] args)
     {
         if (executor instanceof Player) {
-            Lister lister = new Lister(plugin.getWarpList());
-            lister.addPlayer((Player) executor);
+            Lister lister = plugin.getWarpList().getSession((Player) executor).getLister();
+            lister.setWarpCreator(null);
 
             if (args.length == 0) {
                 lister.setPage(1);
@@ -0,0 +1,72 @@
+package me.taylorkelly.mywarp.commands;
+
+import java.util.List;
+
+import me.taylorkelly.mywarp.MyWarp;
+import me.taylorkelly.mywarp.data.Warp;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+public class NearCommand extends BasicCommand implements Command
+{
+    private static final int DEFAULT_RADIUS = 200;
+    private static final int MAX_RADIUS = 2000;
+    private static final int MAX_WARPS = 8;
+
+    private MyWarp plugin;
+
+    public NearCommand(MyWarp plugin)
+    {
+        super("Near");
+        this.plugin = plugin;
+        setDescription("Lists the closest warps");
+        setUsage("/warp near §8[radius]");
+        setArgumentRange(0, 1);
+        setIdentifiers("near");
+        setPermission("mywarp.warp.basic.near");
+    }
+
+    @Override
+    public boolean execute(CommandSender executor, String identifier, String[] args)
+    {
+        if (executor instanceof Player) {
+            Player player = (Player) executor;
+            int radius = DEFAULT_RADIUS;
+            if (args.length == 1) {
+                if (!MyWarp.isInteger(args[0]) || Integer.parseInt(args[0]) < 1) {
+                    return false;
+                }
+                radius = Math.min(Integer.parseInt(args[0]), MAX_RADIUS);
+            }
+
+            List<Warp> warps = plugin.getWarpList().getNearest(player, MAX_WARPS, radius);
+            if (warps.isEmpty()) {
+                player.sendMessage(ChatColor.RED + "There are no warps within " + radius + " blocks.");
+                return true;
+            }
+            player.sendMessage(ChatColor.YELLOW + "Warps within " + radius + " blocks:");
+            Location location = player.getLocation();
+            for (Warp warp : warps) {
+                double dx = warp.x - location.getX();
+                double dy = warp.y - location.getY();
+                double dz = warp.z - location.getZ();
+                long distance = Math.round(Math.sqrt(dx * dx + dy * dy + dz * dz));
+                ChatColor color;
+                if (warp.playerIsCreator(player.getName())) {
+                    color = ChatColor.AQUA;
+                } else if (warp.publicAll) {
+                    color = ChatColor.GREEN;
+                } else {
+                    color = ChatColor.RED;
+                }
+                player.sendMessage(color + "'" + warp.name + "'" + ChatColor.WHITE + " " + distance + " blocks away");
+            }
+        } else {
+            executor.sendMessage("Console cannot search warps for themselves!");
+        }
+        return true;
+    }
+}
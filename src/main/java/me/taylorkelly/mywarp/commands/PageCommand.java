@@ -0,0 +1,60 @@
+package me.taylorkelly.mywarp.commands;
+
+import me.taylorkelly.mywarp.MyWarp;
+import me.taylorkelly.mywarp.data.Lister;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+public class PageCommand extends BasicCommand implements Command
+{
+    private MyWarp plugin;
+
+    public PageCommand(MyWarp plugin)
+    {
+        super("Page");
+        this.plugin = plugin;
+        setDescription("Shows another page of your last warp list");
+        setUsage("/warp page §9<next|prev|page#>");
+        setArgumentRange(1, 1);
+        setIdentifiers("page");
+        setPermission("mywarp.warp.basic.list");
+    }
+
+    @Override
+    public boolean execute(CommandSender executor, String identifier, String[] args)
+    {
+        if (executor instanceof Player) {
+            Lister lister = plugin.getWarpList().getSession((Player) executor).getLister();
+            if (lister.getPage() == 0) {
+                executor.sendMessage(ChatColor.RED + "You have no warp list open, use /warp list first.");
+                return true;
+            }
+
+            int page;
+            if (args[0].equalsIgnoreCase("next")) {
+                page = lister.getPage() + 1;
+            } else if (args[0].equalsIgnoreCase("prev")) {
+                page = lister.getPage() - 1;
+            } else if (args[0].matches("\\d+")) {
+                page = Integer.parseInt(args[0]);
+            } else {
+                return false;
+            }
+
+            int maxPages = lister.getMaxPages();
+            if (page < 1) {
+                executor.sendMessage(ChatColor.RED + "Page number can't be below 1.");
+            } else if (page > maxPages) {
+                executor.sendMessage(ChatColor.RED + "There are only " + maxPages + " pages of warps");
+            } else {
+                lister.setPage(page);
+                lister.list();
+            }
+        } else {
+            executor.sendMessage("Console cannot list warps for themselves!");
+        }
+        return true;
+    }
+}
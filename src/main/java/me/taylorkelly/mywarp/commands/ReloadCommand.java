@@ -24,6 +24,8 @@ public class ReloadCommand extends BasicCommand implements Command
     public boolean execute(CommandSender executor, String identifier, String[] args)
     {
         WarpSettings.initialize(plugin);
+        MyWarp.getWarpPermissions().invalidateAll();
+        plugin.getWarpList().invalidateAccess();
         executor.sendMessage("Reloading MyWarp config");
 
         return true;
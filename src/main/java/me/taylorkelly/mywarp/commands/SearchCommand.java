@@ -26,8 +26,7 @@ public class SearchCommand extends BasicCommand implements Command
     public boolean execute(CommandSender executor, String identifier, String[] args)
     {
         if (executor instanceof Player) {
-            Searcher searcher = new Searcher(plugin.getWarpList());
-            searcher.addPlayer((Player) executor);
+            Searcher searcher = plugin.getWarpList().getSession((Player) executor).getSearcher();
             searcher.setQuery(StringUtils.join(args, ' '));
             searcher.search();
         }
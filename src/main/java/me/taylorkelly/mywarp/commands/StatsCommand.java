@@ -0,0 +1,50 @@
+package me.taylorkelly.mywarp.commands;
+
+import me.taylorkelly.mywarp.MyWarp;
+import me.taylorkelly.mywarp.data.TeleportScheduler;
+import me.taylorkelly.mywarp.permissions.PermissionCache;
+import me.taylorkelly.mywarp.sql.WarpDataSource;
+import me.taylorkelly.mywarp.sql.WarpWriter;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+public class StatsCommand extends BasicCommand implements Command
+{
+    private MyWarp plugin;
+
+    public StatsCommand(MyWarp plugin)
+    {
+        super("Stats");
+        this.plugin = plugin;
+        setDescription("Show internal statistics");
+        setUsage("/warp stats");
+        setArgumentRange(0, 0);
+        setIdentifiers("stats");
+        setPermission("mywarp.admin");
+    }
+
+    @Override
+    public boolean execute(CommandSender executor, String identifier, String[] args)
+    {
+        executor.sendMessage(ChatColor.YELLOW + "MyWarp statistics (" + plugin.getWarpList().getSize() + " warps)");
+
+        WarpWriter writer = WarpDataSource.getWriter();
+        if (writer != null) {
+            executor.sendMessage("Database writes: " + writer.getQueueDepth() + " pending, "
+                    + writer.getWrittenChanges() + " written, last flush " + writer.getLastFlushMillis()
+                    + "ms (max " + writer.getMaxFlushMillis() + "ms)");
+        }
+
+        PermissionCache cache = MyWarp.getWarpPermissions().getCache();
+        executor.sendMessage("Permission cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+                + cache.getPlayerCount() + " players");
+
+        TeleportScheduler scheduler = plugin.getTeleportScheduler();
+        executor.sendMessage("Teleports: " + scheduler.getQueueDepth() + " queued, " + scheduler.getTeleported()
+                + " done");
+        executor.sendMessage("Hot warps: " + scheduler.getHotChunks().getHotWarpCount() + " warps, "
+                + scheduler.getHotChunks().getPinnedCount() + " chunks kept loaded");
+        return true;
+    }
+}
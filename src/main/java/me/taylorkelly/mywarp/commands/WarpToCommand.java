@@ -19,6 +19,7 @@ public class WarpToCommand extends BasicCommand implements Command
         setArgumentRange(1, 255);
         setIdentifiers("warp", "mywarp", "mw");
         setPermission("mywarp.warp.basic.warp");
+        setNotes("Use /warp warp §9<name>§e for a warp named like a command, e.g. near or stats");
     }
 
     @Override
@@ -0,0 +1,28 @@
+package me.taylorkelly.mywarp.data;
+
+import org.bukkit.entity.Player;
+
+/**
+ * The list and search a player last looked at. Both are kept for the
+ * player's session, so paging through a list or narrowing down a search
+ * continues from the previous result instead of starting over.
+ */
+public class BrowseSession {
+    private final Lister lister;
+    private final Searcher searcher;
+
+    BrowseSession(WarpList warpList, Player player) {
+        lister = new Lister(warpList);
+        lister.addPlayer(player);
+        searcher = new Searcher(warpList);
+        searcher.addPlayer(player);
+    }
+
+    public Lister getLister() {
+        return lister;
+    }
+
+    public Searcher getSearcher() {
+        return searcher;
+    }
+}
@@ -0,0 +1,212 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+import me.taylorkelly.mywarp.WarpSettings;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Keeps the chunks around the most visited warps loaded, so players
+ * arriving there don't have to wait for the chunks to load.
+ *
+ * Every warp has an arrival rate that decays with time and roughly counts
+ * the arrivals of the last hour. Once a minute the up to
+ * {@link WarpSettings#hotWarps} warps with the highest rates become hot if
+ * they had at least {@link WarpSettings#hotWarpArrivals} arrivals. A hot
+ * warp only cools down once its rate fell below half of that or it dropped
+ * far out of the top warps, so warps near the limit don't flip every
+ * minute. The chunks of hot warps are pinned up to
+ * {@link WarpSettings#maxPinnedChunks}, hotter warps first.
+ *
+ * All methods have to be called on the main thread.
+ */
+public class HotWarpChunks implements Runnable {
+    private static final double RATE_MILLIS = 60 * 60 * 1000;
+    private static final long UPDATE_TICKS = 60 * 20;
+
+    private final Plugin plugin;
+    private final HashMap<Warp, Heat> heats;
+    private HashSet<Warp> hotWarps;
+    private HashMap<String, HashSet<Long>> pinned;
+    private int pinnedCount;
+
+    public HotWarpChunks(Plugin plugin) {
+        this.plugin = plugin;
+        heats = new HashMap<Warp, Heat>();
+        hotWarps = new HashSet<Warp>();
+        pinned = new HashMap<String, HashSet<Long>>();
+    }
+
+    public void start() {
+        plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, this, UPDATE_TICKS, UPDATE_TICKS);
+    }
+
+    public void arrived(Warp warp) {
+        if (WarpSettings.hotWarps <= 0) {
+            return;
+        }
+        Heat heat = heats.get(warp);
+        if (heat == null) {
+            heat = new Heat(warp);
+            heats.put(warp, heat);
+        }
+        heat.arrive(System.currentTimeMillis());
+    }
+
+    public boolean isPinned(Chunk chunk) {
+        HashSet<Long> chunks = pinned.get(chunk.getWorld().getName());
+        return chunks != null && chunks.contains(chunkKey(chunk.getX(), chunk.getZ()));
+    }
+
+    public int getHotWarpCount() {
+        return hotWarps.size();
+    }
+
+    public int getPinnedCount() {
+        return pinnedCount;
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        ArrayList<Heat> ranked = new ArrayList<Heat>(heats.size());
+        Iterator<Heat> it = heats.values().iterator();
+        while (it.hasNext()) {
+            Heat heat = it.next();
+            heat.decay(now);
+            if (heat.rate < 0.5 && !hotWarps.contains(heat.warp)) {
+                it.remove();
+            } else {
+                ranked.add(heat);
+            }
+        }
+        Collections.sort(ranked, new Comparator<Heat>() {
+            @Override
+            public int compare(Heat a, Heat b) {
+                return Double.compare(b.rate, a.rate);
+            }
+        });
+
+        HashSet<Warp> hot = new HashSet<Warp>();
+        HashMap<String, HashSet<Long>> chunks = new HashMap<String, HashSet<Long>>();
+        int count = 0;
+        int radius = WarpSettings.hotWarpRadius;
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            Heat heat = ranked.get(rank);
+            if (!isHot(heat, rank)) {
+                continue;
+            }
+            Location location = heat.warp.getSharedLocation(plugin.getServer());
+            if (location == null) {
+                continue;
+            }
+            hot.add(heat.warp);
+            HashSet<Long> worldChunks = chunks.get(location.getWorld().getName());
+            if (worldChunks == null) {
+                worldChunks = new HashSet<Long>();
+                chunks.put(location.getWorld().getName(), worldChunks);
+            }
+            int chunkX = location.getBlockX() >> 4;
+            int chunkZ = location.getBlockZ() >> 4;
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    if (count < WarpSettings.maxPinnedChunks && worldChunks.add(chunkKey(chunkX + dx, chunkZ + dz))) {
+                        count++;
+                    }
+                }
+            }
+        }
+
+        release(pinned, chunks);
+        // hot warps get arrivals all the time, so most of these are loaded
+        // already and this rarely loads more than a few chunks
+        load(chunks);
+        hotWarps = hot;
+        pinned = chunks;
+        pinnedCount = count;
+    }
+
+    private boolean isHot(Heat heat, int rank) {
+        if (rank < WarpSettings.hotWarps && heat.rate >= WarpSettings.hotWarpArrivals) {
+            return true;
+        }
+        return hotWarps.contains(heat.warp) && rank < 2 * WarpSettings.hotWarps
+                && heat.rate >= WarpSettings.hotWarpArrivals / 2.0;
+    }
+
+    /**
+     * Asks the server to unload the chunks that aren't pinned anymore, the
+     * server keeps them if players are close.
+     */
+    private void release(HashMap<String, HashSet<Long>> before, HashMap<String, HashSet<Long>> after) {
+        for (Map.Entry<String, HashSet<Long>> entry : before.entrySet()) {
+            World world = plugin.getServer().getWorld(entry.getKey());
+            if (world == null) {
+                continue;
+            }
+            HashSet<Long> kept = after.get(entry.getKey());
+            for (Long key : entry.getValue()) {
+                if (kept == null || !kept.contains(key)) {
+                    world.unloadChunkRequest(chunkX(key), chunkZ(key), true);
+                }
+            }
+        }
+    }
+
+    private void load(HashMap<String, HashSet<Long>> chunks) {
+        for (Map.Entry<String, HashSet<Long>> entry : chunks.entrySet()) {
+            World world = plugin.getServer().getWorld(entry.getKey());
+            if (world == null) {
+                continue;
+            }
+            for (Long key : entry.getValue()) {
+                if (!world.isChunkLoaded(chunkX(key), chunkZ(key))) {
+                    world.loadChunk(chunkX(key), chunkZ(key));
+                }
+            }
+        }
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xffffffffL);
+    }
+
+    private static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int chunkZ(long key) {
+        return (int) key;
+    }
+
+    private static class Heat {
+        private final Warp warp;
+        private double rate;
+        private long updated;
+
+        private Heat(Warp warp) {
+            this.warp = warp;
+            updated = System.currentTimeMillis();
+        }
+
+        private void decay(long now) {
+            rate *= Math.exp((updated - now) / RATE_MILLIS);
+            updated = now;
+        }
+
+        private void arrive(long now) {
+            decay(now);
+            rate++;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package me.taylorkelly.mywarp.data;
+
+import org.angelsl.minecraft.randomshit.fontwidth.MinecraftFontWidthCalculator;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+/**
+ * Renders a page of the warp list into one reusable buffer. Each row is
+ * padded or cut so the locations line up with the end of the page header,
+ * measuring every character only once.
+ */
+class ListLayout {
+    private static final int SPACE_WIDTH = MinecraftFontWidthCalculator.getCharWidth(' ');
+    private static final int QUOTES_WIDTH = MinecraftFontWidthCalculator.getStringWidth("''");
+    private static final int PUBLIC_WIDTH = MinecraftFontWidthCalculator.getStringWidth("(+) by ");
+    private static final int PRIVATE_WIDTH = MinecraftFontWidthCalculator.getStringWidth("(-) by ");
+    private static final String SPACES = "                                                                ";
+
+    private final StringBuilder page = new StringBuilder(1024);
+    private final StringBuilder location = new StringBuilder(32);
+    private int[] lineEnds = new int[16];
+    private int lines;
+
+    void clear() {
+        page.setLength(0);
+        lines = 0;
+    }
+
+    void addLine(String line) {
+        page.append(line);
+        endLine();
+    }
+
+    /**
+     * Adds a row of the form 'name'(+) by creator @(x, y, z), with the
+     * location starting at the given width.
+     */
+    void addRow(ChatColor color, String name, boolean publicAll, String creator, int x, int y, int z, int width) {
+        location.setLength(0);
+        location.append(" @(").append(x).append(", ").append(y).append(", ").append(z).append(')');
+
+        int left = width - QUOTES_WIDTH - (publicAll ? PUBLIC_WIDTH : PRIVATE_WIDTH)
+                - MinecraftFontWidthCalculator.getStringWidth(creator)
+                - MinecraftFontWidthCalculator.getStringWidth(location);
+
+        // the longest prefix of the name that still fits
+        int nameWidth = 0;
+        int cut = 0;
+        while (cut < name.length()) {
+            int charWidth = MinecraftFontWidthCalculator.getCharWidth(name.charAt(cut));
+            if (nameWidth + charWidth > left) {
+                break;
+            }
+            nameWidth += charWidth;
+            cut++;
+        }
+
+        page.append(color).append('\'').append(name, 0, cut).append('\'').append(ChatColor.WHITE);
+        page.append(publicAll ? "(+) by " : "(-) by ").append(creator);
+        if (cut == name.length()) {
+            pad(left - nameWidth);
+        }
+        page.append(location);
+        endLine();
+    }
+
+    void send(Player player) {
+        int start = 0;
+        for (int i = 0; i < lines; i++) {
+            player.sendMessage(page.substring(start, lineEnds[i]));
+            start = lineEnds[i];
+        }
+    }
+
+    /**
+     * Appends as many spaces as are needed to cover the given width.
+     */
+    private void pad(int width) {
+        int count = width > 0 ? (width + SPACE_WIDTH - 1) / SPACE_WIDTH : 0;
+        while (count > 0) {
+            int chunk = Math.min(count, SPACES.length());
+            page.append(SPACES, 0, chunk);
+            count -= chunk;
+        }
+    }
+
+    private void endLine() {
+        if (lines == lineEnds.length) {
+            int[] grown = new int[lines * 2];
+            System.arraycopy(lineEnds, 0, grown, 0, lines);
+            lineEnds = grown;
+        }
+        lineEnds[lines++] = page.length();
+    }
+}
@@ -16,6 +16,8 @@ public class Lister {
 	private String warpCreator;
 	
 	private static final int WARPS_PER_PAGE = 8;
+	// lists are only rendered on the main thread, so all listers share a buffer
+	private static final ListLayout layout = new ListLayout();
 	ArrayList<Warp> sortedWarps;
 
 	public Lister(WarpList warpList) {
@@ -30,6 +32,24 @@ public class Lister {
 	    this.warpCreator = warpCreator;
 	}
 
+	/**
+	 * The page shown last, 0 if nothing was listed yet.
+	 */
+	public int getPage() {
+	    return page;
+	}
+
+	/**
+	 * The number of pages of the current list, all warps or only those of
+	 * the current creator.
+	 */
+	public int getMaxPages() {
+	    if (warpCreator == null) {
+	        return getMaxPages(player);
+	    }
+	    return getMaxPagesPerCreator(player, warpCreator);
+	}
+
     public void setPage(int page) {
         this.page = page;
         int start = (page - 1) * WARPS_PER_PAGE;
@@ -52,56 +72,27 @@ public class Lister {
         } else {
             String intro = "------------------- Page " + page + "/" + maxPages
                     + " -------------------";
-            player.sendMessage(ChatColor.YELLOW + intro);
+            layout.clear();
+            layout.addLine(ChatColor.YELLOW + intro);
+            int introWidth = MinecraftFontWidthCalculator.getStringWidth(intro);
             for (Warp warp : sortedWarps) {
-                String name = warp.name;
                 String creator = (warp.creator.equalsIgnoreCase(player.getName())) ? "you"
                         : warp.creator;
-                int x = (int) Math.round(warp.x);
-                int y = warp.y;
-                int z = (int) Math.round(warp.z);
-                String color;
+                ChatColor color;
                 if (warp.playerIsCreator(player.getName())) {
-                    color = ChatColor.AQUA.toString();
+                    color = ChatColor.AQUA;
                 } else if (warp.publicAll) {
-                    color = ChatColor.GREEN.toString();
+                    color = ChatColor.GREEN;
                 } else {
-                    color = ChatColor.RED.toString();
+                    color = ChatColor.RED;
                 }
-
-                String location = " @(" + x + ", " + y + ", " + z + ")";
-                String creatorString = (warp.publicAll ? "(+)" : "(-)") + " by "
-                        + creator;
-
-                // Find remaining length left
-                int left = MinecraftFontWidthCalculator.getStringWidth(intro)
-                        - MinecraftFontWidthCalculator.getStringWidth("''"
-                                + creatorString + location);
-
-                int nameLength = MinecraftFontWidthCalculator.getStringWidth(name);
-                if (left > nameLength) {
-                    name = "'" + name + "'" + ChatColor.WHITE + creatorString
-                            + whitespace(left - nameLength);
-                } else if (left < nameLength) {
-                    name = "'" + substring(name, left) + "'" + ChatColor.WHITE
-                            + creatorString;
-                }
-
-                player.sendMessage(color + name + location);
+                layout.addRow(color, warp.name, warp.publicAll, creator, (int) Math.round(warp.x), warp.y,
+                        (int) Math.round(warp.z), introWidth);
             }
+            layout.send(player);
         }
     }
 
-	/**
-	 * Lob shit off that string till it fits.
-	 */
-	private String substring(String name, int left) {
-		while(MinecraftFontWidthCalculator.getStringWidth(name) > left) {
-			name = name.substring(0, name.length()-1);
-		}
-		return name;
-	}
-
     public int getMaxPages(Player player) {
         return (int) Math.ceil(warpList.getMaxWarps(player) / (double) WARPS_PER_PAGE);
     }
@@ -111,16 +102,4 @@ public class Lister {
         return (int) Math.ceil(warpList.getMaxWarpsPerCreator(player, matchingWarpCreator)
                 / (double) WARPS_PER_PAGE);
     }
-	
-	public String whitespace(int length) {
-		int spaceWidth = MinecraftFontWidthCalculator.getStringWidth(" ");
-		
-		StringBuilder ret = new StringBuilder();
-		
-		for(int i = 0; i < length; i+=spaceWidth) {
-			ret.append(" ");
-		}
-		
-		return ret.toString();
-	}
 }
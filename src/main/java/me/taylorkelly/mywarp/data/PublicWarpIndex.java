@@ -0,0 +1,43 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * All public warps in collation order. Listings of players that can't see
+ * every warp only need these plus the private warps they have access to.
+ *
+ * Warps must be added to the name index before they are added here.
+ */
+public class PublicWarpIndex {
+    private final WarpNameIndex nameIndex;
+    private final TreeMap<WarpNameIndex.SortKey, Warp> warps;
+
+    public PublicWarpIndex(WarpNameIndex nameIndex) {
+        this.nameIndex = nameIndex;
+        warps = new TreeMap<WarpNameIndex.SortKey, Warp>();
+    }
+
+    public void add(Warp warp) {
+        if (warp.publicAll) {
+            warps.put(nameIndex.keyOf(warp), warp);
+        }
+    }
+
+    public void remove(Warp warp) {
+        warps.remove(nameIndex.keyOf(warp));
+    }
+
+    public void clear() {
+        warps.clear();
+    }
+
+    public int size() {
+        return warps.size();
+    }
+
+    public Collection<Warp> values() {
+        return Collections.unmodifiableCollection(warps.values());
+    }
+}
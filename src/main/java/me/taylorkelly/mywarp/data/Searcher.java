@@ -1,7 +1,7 @@
 package me.taylorkelly.mywarp.data;
 
 import java.util.ArrayList;
-
+import java.util.List;
 
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -13,6 +13,10 @@ public class Searcher {
 
 	private ArrayList<Warp> exactMatches;
 	private ArrayList<Warp> matches;
+	private MatchList matchList;
+	private int version;
+	private List<String> exactRows;
+	private List<String> rows;
 
 	private String query;
 
@@ -24,30 +28,58 @@ public class Searcher {
 		this.player = player;
 	}
 
+	/**
+	 * Searches for the given name. If the warps didn't change since the last
+	 * search, the same query reuses the previous result and a longer query
+	 * that contains the previous one only looks at the previous result.
+	 */
 	public void setQuery(String name) {
+		if (query != null && version == warpList.getVersion()) {
+			if (query.equals(name)) {
+				return;
+			}
+			if (name.toLowerCase().contains(query.toLowerCase())) {
+				setMatches(name, warpList.refineMatches(matchList, name, player));
+				return;
+			}
+		}
+		setMatches(name, warpList.getMatches(name, player));
+	}
+
+	private void setMatches(String name, MatchList matches) {
 		this.query = name;
-		MatchList matches = warpList.getMatches(name, player);
+		this.version = warpList.getVersion();
+		this.matchList = matches;
 		this.exactMatches = matches.exactMatches;
 		this.matches = matches.matches;
+		this.exactRows = null;
+		this.rows = null;
+	}
 
+	private List<String> render(ArrayList<Warp> warps) {
+		List<String> ret = new ArrayList<String>(warps.size());
+		for (Warp warp : warps) {
+			String color;
+			if (warp.playerIsCreator(player.getName())) {
+				color = ChatColor.AQUA.toString();
+			} else if (warp.publicAll) {
+				color = ChatColor.GREEN.toString();
+			} else {
+				color = ChatColor.RED.toString();
+			}
+			String creator = (warp.creator.equalsIgnoreCase(player.getName())) ? "you" : warp.creator;
+			int x = (int) Math.round(warp.x);
+			int y = warp.y;
+			int z = (int) Math.round(warp.z);
+			ret.add(color + "'" + warp.name + "'" + ChatColor.WHITE + " by " + creator + " @(" + x + ", " + y + ", " + z + ")");
+		}
+		return ret;
 	}
 
-	public void sendWarpMatches(ArrayList<Warp> warps) {
-        for (Warp warp : warps) {
-            String color;
-            if (warp.playerIsCreator(player.getName())) {
-                color = ChatColor.AQUA.toString();
-            } else if (warp.publicAll) {
-                color = ChatColor.GREEN.toString();
-            } else {
-                color = ChatColor.RED.toString();
-            }
-            String creator = (warp.creator.equalsIgnoreCase(player.getName())) ? "you" : warp.creator;
-            int x = (int) Math.round(warp.x);
-            int y = warp.y;
-            int z = (int) Math.round(warp.z);
-            player.sendMessage(color + "'" + warp.name + "'" + ChatColor.WHITE + " by " + creator + " @(" + x + ", " + y + ", " + z + ")");
-        }
+	private void sendRows(List<String> rows) {
+		for (String row : rows) {
+			player.sendMessage(row);
+		}
 	}
 
 	public void search() {
@@ -56,12 +88,18 @@ public class Searcher {
 			player.sendMessage(ChatColor.RED + "No warp matches for search: " + ChatColor.GRAY + query);
 		} else {
 			if (exactMatches.size() > 0) {
+				if (exactRows == null) {
+					exactRows = render(exactMatches);
+				}
 				player.sendMessage(ChatColor.YELLOW + "Exact matches for search: " + ChatColor.GRAY + query);
-				sendWarpMatches(exactMatches);
+				sendRows(exactRows);
 			}
 			if (matches.size() > 0) {
+				if (rows == null) {
+					rows = render(matches);
+				}
 				player.sendMessage(ChatColor.YELLOW + "Partial matches for search: " + ChatColor.GRAY + query);
-				sendWarpMatches(matches);
+				sendRows(rows);
 			}
 		}
 	}
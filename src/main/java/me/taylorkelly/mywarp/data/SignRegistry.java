@@ -0,0 +1,261 @@
+package me.taylorkelly.mywarp.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.taylorkelly.mywarp.utils.WarpLogger;
+
+import org.bukkit.block.Block;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Remembers which blocks are warp signs and the warp they lead to, so a
+ * click on a sign doesn't have to match the warp name against all warps.
+ * Signs are keyed by their world and their packed coordinates.
+ *
+ * A sign is bound to the warp with exactly the name on the sign. If there
+ * is no such warp, for example because it was deleted, the sign stays
+ * registered and is bound again once a warp of that name is created.
+ *
+ * Changes are written to the file every half minute on another thread,
+ * and by {@link #flush()} when the plugin is disabled.
+ */
+public class SignRegistry {
+    private static final String SIGNS_PATH = "signs";
+    private static final long SAVE_TICKS = 30 * 20;
+
+    private final HashMap<String, HashMap<Long, SignEntry>> worlds;
+    private final HashMap<String, ArrayList<SignEntry>> byName;
+    private File file;
+    private boolean dirty;
+    private int saves;
+    private int written;
+
+    public SignRegistry() {
+        worlds = new HashMap<String, HashMap<Long, SignEntry>>();
+        byName = new HashMap<String, ArrayList<SignEntry>>();
+    }
+
+    /**
+     * Reads the warp signs saved in the given file, later changes are
+     * written to the same file.
+     */
+    public void load(File file) {
+        this.file = file;
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (String line : config.getStringList(SIGNS_PATH)) {
+            String[] parts = line.split(",", 5);
+            try {
+                put(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+                        parts[4]);
+            } catch (RuntimeException ex) {
+                WarpLogger.warning("Skipping invalid sign warp '" + line + "'");
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * Starts saving the changes periodically.
+     */
+    public void start(final Plugin plugin) {
+        plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, new Runnable() {
+            @Override
+            public void run() {
+                if (!dirty || file == null) {
+                    return;
+                }
+                final List<String> lines = getLines();
+                final int save = ++saves;
+                dirty = false;
+                plugin.getServer().getScheduler().scheduleAsyncDelayedTask(plugin, new Runnable() {
+                    @Override
+                    public void run() {
+                        write(lines, save);
+                    }
+                });
+            }
+        }, SAVE_TICKS, SAVE_TICKS);
+    }
+
+    /**
+     * Writes the changes that weren't saved yet on the calling thread.
+     */
+    public void flush() {
+        if (dirty && file != null) {
+            write(getLines(), ++saves);
+            dirty = false;
+        }
+    }
+
+    /**
+     * The entry of the block, or null if it isn't a registered warp sign.
+     */
+    public SignEntry get(Block block) {
+        HashMap<Long, SignEntry> signs = worlds.get(block.getWorld().getName());
+        if (signs == null) {
+            return null;
+        }
+        return signs.get(key(block.getX(), block.getY(), block.getZ()));
+    }
+
+    /**
+     * Registers the block as a sign leading to the warp of the given name.
+     */
+    public SignEntry register(Block block, String name, Warp warp) {
+        SignEntry entry = put(block.getWorld().getName(), block.getX(), block.getY(), block.getZ(), name);
+        entry.warp = warp;
+        dirty = true;
+        return entry;
+    }
+
+    public void remove(Block block) {
+        HashMap<Long, SignEntry> signs = worlds.get(block.getWorld().getName());
+        if (signs == null) {
+            return;
+        }
+        SignEntry entry = signs.remove(key(block.getX(), block.getY(), block.getZ()));
+        if (signs.isEmpty()) {
+            worlds.remove(block.getWorld().getName());
+        }
+        if (entry != null) {
+            removeName(entry);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Binds the signs with the name of the warp to it.
+     */
+    public void bind(Warp warp) {
+        ArrayList<SignEntry> entries = byName.get(warp.name);
+        if (entries != null) {
+            for (SignEntry entry : entries) {
+                entry.warp = warp;
+            }
+        }
+    }
+
+    /**
+     * Unbinds the signs of the warp.
+     *
+     * @return the number of signs that lead nowhere now
+     */
+    public int unbind(Warp warp) {
+        int count = 0;
+        ArrayList<SignEntry> entries = byName.get(warp.name);
+        if (entries != null) {
+            for (SignEntry entry : entries) {
+                if (entry.warp == warp) {
+                    entry.warp = null;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private SignEntry put(String world, int x, int y, int z, String name) {
+        HashMap<Long, SignEntry> signs = worlds.get(world);
+        if (signs == null) {
+            signs = new HashMap<Long, SignEntry>();
+            worlds.put(world, signs);
+        }
+        SignEntry entry = new SignEntry(world, x, y, z, name);
+        SignEntry old = signs.put(key(x, y, z), entry);
+        if (old != null) {
+            removeName(old);
+            dirty = true;
+        }
+        ArrayList<SignEntry> entries = byName.get(name);
+        if (entries == null) {
+            entries = new ArrayList<SignEntry>(1);
+            byName.put(name, entries);
+        }
+        entries.add(entry);
+        return entry;
+    }
+
+    private void removeName(SignEntry entry) {
+        ArrayList<SignEntry> entries = byName.get(entry.name);
+        if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+            byName.remove(entry.name);
+        }
+    }
+
+    private List<String> getLines() {
+        List<String> lines = new ArrayList<String>();
+        for (ArrayList<SignEntry> entries : byName.values()) {
+            for (SignEntry entry : entries) {
+                lines.add(entry.world + "," + entry.x + "," + entry.y + "," + entry.z + "," + entry.name);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Synchronized so a periodic save and the final flush don't write the
+     * file at the same time, a save that was taken before the last written
+     * one is skipped.
+     */
+    private synchronized void write(List<String> lines, int save) {
+        if (save <= written) {
+            return;
+        }
+        written = save;
+        YamlConfiguration config = new YamlConfiguration();
+        config.set(SIGNS_PATH, lines);
+        try {
+            config.save(file);
+        } catch (IOException ex) {
+            WarpLogger.severe("Could not save the sign warps", ex);
+        }
+    }
+
+    /**
+     * Packs the coordinates into one long, 26 bits each for x and z and 12
+     * bits for y.
+     */
+    private static long key(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static class SignEntry {
+        private final String world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final String name;
+        private Warp warp;
+
+        private SignEntry(String world, int x, int y, int z, String name) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.name = name;
+        }
+
+        /**
+         * The name on the sign.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The warp the sign leads to, null if there is no warp of that name.
+         */
+        public Warp getWarp() {
+            return warp;
+        }
+    }
+}
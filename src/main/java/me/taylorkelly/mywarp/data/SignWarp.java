@@ -1,8 +1,9 @@
 package me.taylorkelly.mywarp.data;
 
-import java.util.ArrayList;
-
+import me.taylorkelly.mywarp.data.SignRegistry.SignEntry;
 
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.entity.Player;
 import org.bukkit.event.block.SignChangeEvent;
@@ -10,44 +11,68 @@ import org.bukkit.event.block.SignChangeEvent;
 public class SignWarp {
     
     /**
-     * Precondition: Only call if isSignWarp() returned true
+     * Precondition: Only call for entries of warp signs
      */
-    public static void warpSign(Sign sign, WarpList list, Player player) {
-        ArrayList<String> lines = new ArrayList<String>();
-        for(int i = 0; i < 4; i++){
-            if(!sign.getLine(i).trim().equals("")) {
-                lines.add(sign.getLine(i).trim());
-            }
+    public static void warpSign(SignEntry sign, WarpList list, Player player) {
+        if (sign.getWarp() != null) {
+            list.warpTo(sign.getWarp(), player);
+        } else {
+            list.warpTo(sign.getName(), player);
         }
-        String name = lines.get(1);
-        list.warpTo(name, player);
     }
 
-    public static boolean isSignWarp(Sign sign) {
-        ArrayList<String> lines = new ArrayList<String>();
-        for(int i = 0; i < 4; i++){
-            if(!sign.getLine(i).trim().equals("")) {
-                lines.add(sign.getLine(i).trim());
-            }
+    /**
+     * The entry of a clicked sign block, or null if it is no warp sign.
+     * Registered signs are taken from the registry as they are, the block
+     * listener removes them when they are broken or rewritten. Only signs
+     * that aren't registered, like those created before signs were
+     * registered, are read and registered if they turn out to be warp signs.
+     */
+    public static SignEntry lookup(Block block, WarpList list) {
+        SignEntry entry = list.getSigns().get(block);
+        if (entry != null) {
+            return entry;
         }
-        if(lines.size() == 2 && lines.get(0).equalsIgnoreCase("MyWarp")) {
-            return true;
-        } else {
-            return false;
+        BlockState state = block.getState();
+        String name = state instanceof Sign ? getWarpName(((Sign) state).getLines()) : null;
+        if (name == null) {
+            return null;
         }
+        return list.getSigns().register(block, name, list.getWarp(name));
+    }
+
+    public static boolean isSignWarp(Sign sign) {
+        return getWarpName(sign.getLines()) != null;
     }
 
     public static boolean isSignWarp(SignChangeEvent sign) {
-        ArrayList<String> lines = new ArrayList<String>();
+        return getWarpName(sign.getLines()) != null;
+    }
+
+    /**
+     * The name of the warp on a sign with the given lines, or null if it is
+     * no warp sign.
+     */
+    public static String getWarpName(String[] signLines) {
+        String first = null;
+        String second = null;
         for(int i = 0; i < 4; i++){
-            if(!sign.getLine(i).trim().equals("")) {
-                lines.add(sign.getLine(i).trim());
+            String line = signLines[i].trim();
+            if(line.length() == 0) {
+                continue;
+            }
+            if(first == null) {
+                first = line;
+            } else if(second == null) {
+                second = line;
+            } else {
+                return null;
             }
         }
-        if(lines.size() == 2 && lines.get(0).equalsIgnoreCase("MyWarp")) {
-            return true;
+        if(second != null && first.equalsIgnoreCase("MyWarp")) {
+            return second;
         } else {
-            return false;
+            return null;
         }
     }
 }
@@ -0,0 +1,164 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import me.taylorkelly.mywarp.WarpSettings;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Spreads teleports over several ticks. Every tick may teleport up to
+ * {@link WarpSettings#teleportsPerTick} players and spend up to
+ * {@link WarpSettings#teleportTickBudget} milliseconds on it, everything
+ * above that waits in a queue. The landing spots of the warps at the front
+ * of the queue are prepared ahead, so their chunks are loaded before the
+ * players get there.
+ *
+ * All methods have to be called on the main thread.
+ */
+public class TeleportScheduler implements Runnable {
+    private final Plugin plugin;
+    private final WarpTeleporter teleporter;
+    private final HotWarpChunks hotChunks;
+    private final ArrayDeque<Request> queue;
+    private int tickTeleports;
+    private long tickNanos;
+    private long teleported;
+
+    public TeleportScheduler(Plugin plugin, WarpTeleporter teleporter, HotWarpChunks hotChunks) {
+        this.plugin = plugin;
+        this.teleporter = teleporter;
+        this.hotChunks = hotChunks;
+        queue = new ArrayDeque<Request>();
+        teleporter.setScheduler(this);
+    }
+
+    public void start() {
+        plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, this, 1L, 1L);
+    }
+
+    /**
+     * Teleports the player right away if this tick has time left, otherwise
+     * queues the teleport.
+     *
+     * @return false if the teleport was queued
+     */
+    public boolean submit(Warp warp, Player player) {
+        if (queue.isEmpty() && hasBudget()) {
+            teleport(warp, player);
+            return true;
+        }
+        queue.add(new Request(warp, player));
+        player.sendMessage(ChatColor.AQUA + "You will be warped to '" + warp.name + "' in a moment");
+        return false;
+    }
+
+    /**
+     * Queues the players that waited for the landing spot of the warp in
+     * front of everyone else, they were there first.
+     */
+    void resubmit(Warp warp, List<Player> players) {
+        ListIterator<Player> it = players.listIterator(players.size());
+        while (it.hasPrevious()) {
+            queue.addFirst(new Request(warp, it.previous()));
+        }
+    }
+
+    /**
+     * Drops the queued teleports to a warp that was deleted and forgets its
+     * landing spot.
+     */
+    public void cancel(Warp warp) {
+        Iterator<Request> it = queue.iterator();
+        while (it.hasNext()) {
+            Request request = it.next();
+            if (request.warp == warp) {
+                it.remove();
+                request.player.sendMessage(ChatColor.RED + "The warp '" + warp.name + "' was deleted");
+            }
+        }
+        for (Player player : teleporter.cancel(warp)) {
+            player.sendMessage(ChatColor.RED + "The warp '" + warp.name + "' was deleted");
+        }
+    }
+
+    @Override
+    public void run() {
+        tickTeleports = 0;
+        tickNanos = 0;
+        while (!queue.isEmpty() && hasBudget()) {
+            Request request = queue.poll();
+            if (request.player.isOnline()) {
+                teleport(request.warp, request.player);
+            }
+        }
+        prepareAhead();
+    }
+
+    /**
+     * Prepares the warps of the next few ticks with the time left in this
+     * one.
+     */
+    private void prepareAhead() {
+        int lookahead = WarpSettings.teleportsPerTick * 4;
+        Iterator<Request> it = queue.iterator();
+        for (int i = 0; i < lookahead && it.hasNext() && tickNanos < getBudgetNanos(); i++) {
+            long start = System.nanoTime();
+            teleporter.prepare(it.next().warp);
+            tickNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void teleport(Warp warp, Player player) {
+        long start = System.nanoTime();
+        teleporter.teleport(warp, player);
+        hotChunks.arrived(warp);
+        tickNanos += System.nanoTime() - start;
+        tickTeleports++;
+        teleported++;
+    }
+
+    /**
+     * The first teleport of a tick is always allowed, so the queue moves
+     * even if a single teleport takes longer than the budget.
+     */
+    private boolean hasBudget() {
+        return tickTeleports == 0
+                || (tickTeleports < WarpSettings.teleportsPerTick && tickNanos < getBudgetNanos());
+    }
+
+    private static long getBudgetNanos() {
+        return WarpSettings.teleportTickBudget * 1000000L;
+    }
+
+    public HotWarpChunks getHotChunks() {
+        return hotChunks;
+    }
+
+    public WarpTeleporter getTeleporter() {
+        return teleporter;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getTeleported() {
+        return teleported;
+    }
+
+    private static class Request {
+        private final Warp warp;
+        private final Player player;
+
+        private Request(Warp warp, Player player) {
+            this.warp = warp;
+            this.player = player;
+        }
+    }
+}
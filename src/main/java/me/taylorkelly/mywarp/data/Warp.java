@@ -1,6 +1,9 @@
 package me.taylorkelly.mywarp.data;
 
-import java.util.ArrayList;
+import java.lang.ref.WeakReference;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import me.taylorkelly.mywarp.MyWarp;
 import me.taylorkelly.mywarp.WarpSettings;
@@ -10,6 +13,13 @@ import org.bukkit.entity.Player;
 
 public class Warp {
 
+    /**
+     * The values of a warp that can change after it was created.
+     */
+    public enum Field {
+        CREATOR, PUBLIC_ALL, PERMISSIONS, WELCOME_MESSAGE
+    }
+
     public int index;
     public String name;
     public String creator;
@@ -21,8 +31,14 @@ public class Warp {
     public int pitch;
     public boolean publicAll;
     public String welcomeMessage;
-    public ArrayList<String> permissions;
-    public static int nextIndex = 1;
+    public Set<String> permissions;
+    private static int nextIndex = 1;
+    private static int worldGeneration;
+    private final EnumSet<Field> dirty = EnumSet.noneOf(Field.class);
+    private int revision;
+    private WeakReference<World> resolvedWorld;
+    private Location location;
+    private int locationGeneration;
 
     public Warp(int index, String name, String creator, String world, double x, int y, double z, int yaw, int pitch, boolean publicAll, String permissions,
             String welcomeMessage) {
@@ -38,10 +54,7 @@ public class Warp {
         this.publicAll = publicAll;
         this.permissions = processList(permissions);
         this.welcomeMessage = welcomeMessage;
-        if (index > nextIndex) {
-            nextIndex = index;
-        }
-        nextIndex++;
+        reserveIndex(index);
     }
 
     public Warp(String name, Player creator) {
@@ -49,8 +62,7 @@ public class Warp {
     }
 
     public Warp(String name, Location location) {
-        this.index = nextIndex;
-        nextIndex++;
+        this.index = takeIndex();
         this.name = name;
         this.creator = "No Player";
         this.world = location.getWorld().getName();
@@ -60,13 +72,12 @@ public class Warp {
         this.yaw = Math.round(location.getYaw()) % 360;
         this.pitch = Math.round(location.getPitch()) % 360;
         this.publicAll = true;
-        this.permissions = new ArrayList<String>();
+        this.permissions = new LinkedHashSet<String>();
         this.welcomeMessage = "Welcome to '" + name + "'";
     }
 
     public Warp(String name, Player creator, boolean b) {
-        this.index = nextIndex;
-        nextIndex++;
+        this.index = takeIndex();
         this.name = name;
         this.creator = creator.getName();
         this.world = creator.getWorld().getName();
@@ -76,13 +87,28 @@ public class Warp {
         this.yaw = Math.round(creator.getLocation().getYaw()) % 360;
         this.pitch = Math.round(creator.getLocation().getPitch()) % 360;
         this.publicAll = b;
-        this.permissions = new ArrayList<String>();
+        this.permissions = new LinkedHashSet<String>();
         this.welcomeMessage = "Welcome to '" + name + "'";
     }
 
-    private ArrayList<String> processList(String permissions) {
+    /**
+     * Warps loaded from the database are decoded on several threads, so the
+     * index counter is only touched while holding the class lock.
+     */
+    private static synchronized void reserveIndex(int index) {
+        if (index > nextIndex) {
+            nextIndex = index;
+        }
+        nextIndex++;
+    }
+
+    private static synchronized int takeIndex() {
+        return nextIndex++;
+    }
+
+    private Set<String> processList(String permissions) {
         String[] names = permissions.split(",");
-        ArrayList<String> ret = new ArrayList<String>();
+        Set<String> ret = new LinkedHashSet<String>();
         for (String name : names) {
             if (name.equals("")) {
                 continue;
@@ -115,25 +141,6 @@ public class Warp {
         return publicAll;
     }
 
-    public void warp(Player player, Server server) {
-        World currWorld = null;
-        if (world.equals("0")) {
-            currWorld = server.getWorlds().get(0);
-        } else {
-            currWorld = server.getWorld(world);
-        }
-        if (currWorld != null) {
-            Location location = new Location(currWorld, x, y, z, yaw, pitch);
-            while (currWorld.getBlockAt(location).getType() != Material.AIR) {
-                location.setY(location.getY() + 1.0);
-                location = currWorld.getBlockAt(location).getLocation();
-            }
-            player.teleport(location);
-        } else {
-            player.sendMessage(ChatColor.RED + "World " + world + " doesn't exist.");
-        }
-    }
-
     public boolean playerIsCreator(String name) {
         if (creator.equals(name)) {
             return true;
@@ -142,7 +149,9 @@ public class Warp {
     }
 
     public void invite(String player) {
-        permissions.add(player);
+        if (permissions.add(player)) {
+            changed(Field.PERMISSIONS);
+        }
     }
 
     public boolean playerIsInvited(String player) {
@@ -150,7 +159,9 @@ public class Warp {
     }
 
     public void uninvite(String inviteeName) {
-        permissions.remove(inviteeName);
+        if (permissions.remove(inviteeName)) {
+            changed(Field.PERMISSIONS);
+        }
     }
 
     public boolean playerCanModify(Player player) {
@@ -164,25 +175,98 @@ public class Warp {
     }
 
     public void setCreator(String giveeName) {
-        this.creator = giveeName;
+        if (!creator.equals(giveeName)) {
+            this.creator = giveeName;
+            changed(Field.CREATOR);
+        }
+    }
+
+    public void setPublicAll(boolean publicAll) {
+        if (this.publicAll != publicAll) {
+            this.publicAll = publicAll;
+            changed(Field.PUBLIC_ALL);
+        }
+    }
+
+    public void setWelcomeMessage(String welcomeMessage) {
+        if (!this.welcomeMessage.equals(welcomeMessage)) {
+            this.welcomeMessage = welcomeMessage;
+            changed(Field.WELCOME_MESSAGE);
+        }
+    }
+
+    private void changed(Field field) {
+        dirty.add(field);
+        revision++;
+    }
+
+    /**
+     * Counts the changes of the warp, unlike the dirty fields it is never
+     * reset.
+     */
+    int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the values that changed since the last call and marks them as
+     * clean again.
+     */
+    public Set<Field> takeDirtyFields() {
+        if (dirty.isEmpty()) {
+            return EnumSet.noneOf(Field.class);
+        }
+        EnumSet<Field> ret = EnumSet.copyOf(dirty);
+        dirty.clear();
+        return ret;
     }
 
     public String toString() {
         return name;
     }
 
+    /**
+     * The location of the warp.
+     *
+     * @return a new location, or null if the world of the warp doesn't exist
+     */
     public Location getLocation(Server server) {
-        World currWorld = null;
+        Location ret = getSharedLocation(server);
+        return ret == null ? null : ret.clone();
+    }
+
+    /**
+     * The location of the warp without copying it. It is resolved once and
+     * shared until a world is loaded or unloaded, so it must not be modified.
+     *
+     * @return null if the world of the warp doesn't exist
+     */
+    Location getSharedLocation(Server server) {
+        World currWorld = resolvedWorld == null ? null : resolvedWorld.get();
+        if (currWorld != null && locationGeneration == worldGeneration) {
+            return location;
+        }
         if (world.equals("0")) {
             currWorld = server.getWorlds().get(0);
         } else {
             currWorld = server.getWorld(world);
         }
         if (currWorld == null) {
+            resolvedWorld = null;
+            location = null;
             return null;
-        } else {
-            Location location = new Location(currWorld, x, y, z, yaw, pitch);
-            return location;
         }
+        resolvedWorld = new WeakReference<World>(currWorld);
+        location = new Location(currWorld, x, y, z, yaw, pitch);
+        locationGeneration = worldGeneration;
+        return location;
+    }
+
+    /**
+     * Makes every warp resolve its world again, has to be called whenever a
+     * world is loaded or unloaded.
+     */
+    public static void worldsChanged() {
+        worldGeneration++;
     }
 }
@@ -0,0 +1,62 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The warps a single player may warp to, resolved once so listings don't
+ * have to ask the permissions plugin about every single warp.
+ *
+ * Public warps are checked live, so changing a warp's visibility never
+ * requires touching the cached accesses. An access expires together with
+ * the permission decisions it was resolved from.
+ */
+public class WarpAccess {
+    private final boolean seesAll;
+    private final HashSet<Warp> granted;
+    private final long expires;
+
+    WarpAccess(boolean seesAll, HashSet<Warp> granted, long expires) {
+        this.seesAll = seesAll;
+        this.granted = granted;
+        this.expires = expires;
+    }
+
+    boolean isExpired(long now) {
+        return expires <= now;
+    }
+
+    public boolean canWarp(Warp warp) {
+        return seesAll || warp.publicAll || granted.contains(warp);
+    }
+
+    /**
+     * Whether the player may warp to every warp, in which case
+     * {@link #getPrivateWarps()} doesn't tell anything.
+     */
+    public boolean seesAll() {
+        return seesAll;
+    }
+
+    /**
+     * The private warps the player created or is invited to, unsorted.
+     */
+    public List<Warp> getPrivateWarps() {
+        ArrayList<Warp> ret = new ArrayList<Warp>();
+        for (Warp warp : granted) {
+            if (!warp.publicAll) {
+                ret.add(warp);
+            }
+        }
+        return ret;
+    }
+
+    void grant(Warp warp) {
+        granted.add(warp);
+    }
+
+    void revoke(Warp warp) {
+        granted.remove(warp);
+    }
+}
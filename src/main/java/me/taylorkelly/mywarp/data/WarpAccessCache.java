@@ -0,0 +1,85 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import me.taylorkelly.mywarp.MyWarp;
+import me.taylorkelly.mywarp.WarpSettings;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Caches the {@link WarpAccess} of each player for as long as the
+ * permission decisions are cached, see {@link WarpSettings#permissionCacheTtl}.
+ *
+ * Changes to the warps are applied to the cached accesses of the affected
+ * players. Changes to a player's permissions are picked up once the access
+ * expires, or right away after {@link #invalidate(String)}.
+ */
+public class WarpAccessCache {
+    private final WarpCreatorIndex creatorIndex;
+    private final WarpInviteeIndex inviteeIndex;
+    private final HashMap<String, WarpAccess> accesses;
+
+    public WarpAccessCache(WarpCreatorIndex creatorIndex, WarpInviteeIndex inviteeIndex) {
+        this.creatorIndex = creatorIndex;
+        this.inviteeIndex = inviteeIndex;
+        accesses = new HashMap<String, WarpAccess>();
+    }
+
+    public WarpAccess get(Player player) {
+        WarpAccess access = accesses.get(player.getName());
+        if (access == null || access.isExpired(System.currentTimeMillis())) {
+            access = resolve(player);
+            accesses.put(player.getName(), access);
+        }
+        return access;
+    }
+
+    private WarpAccess resolve(Player player) {
+        boolean seesAll = MyWarp.getWarpPermissions().isAdmin(player) && WarpSettings.adminPrivateWarps;
+        HashSet<Warp> granted = new HashSet<Warp>(creatorIndex.getWarps(player.getName()));
+        granted.addAll(inviteeIndex.getWarps(player.getName()));
+        long expires = System.currentTimeMillis() + WarpSettings.permissionCacheTtl * 1000L;
+        return new WarpAccess(seesAll, granted, expires);
+    }
+
+    /**
+     * Called after the given player was made creator of or invited to the
+     * warp.
+     */
+    public void grant(String player, Warp warp) {
+        WarpAccess access = accesses.get(player);
+        if (access != null) {
+            access.grant(warp);
+        }
+    }
+
+    /**
+     * Called after the given player lost the creatorship of or the invitation
+     * to the warp. The player keeps access if still creator or invited.
+     */
+    public void revoke(String player, Warp warp) {
+        WarpAccess access = accesses.get(player);
+        if (access != null && !warp.playerIsCreator(player) && !warp.playerIsInvited(player)) {
+            access.revoke(warp);
+        }
+    }
+
+    /**
+     * Called after the warp was deleted.
+     */
+    public void remove(Warp warp) {
+        for (WarpAccess access : accesses.values()) {
+            access.revoke(warp);
+        }
+    }
+
+    public void invalidate(String player) {
+        accesses.remove(player);
+    }
+
+    public void invalidateAll() {
+        accesses.clear();
+    }
+}
@@ -0,0 +1,90 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/**
+ * Groups the warps by their creator and keeps count of each creator's public
+ * and private warps, so limit checks don't have to look at every warp.
+ *
+ * Every change to a warp's creator or visibility has to be done between a
+ * {@link #remove(Warp)} and an {@link #add(Warp)} so the counters stay right.
+ * Warps must be added to the name index before they are added here.
+ */
+public class WarpCreatorIndex {
+    private final WarpNameIndex nameIndex;
+    private final HashMap<String, CreatorWarps> creators;
+
+    public WarpCreatorIndex(WarpNameIndex nameIndex) {
+        this.nameIndex = nameIndex;
+        creators = new HashMap<String, CreatorWarps>();
+    }
+
+    public void add(Warp warp) {
+        CreatorWarps entry = creators.get(warp.creator);
+        if (entry == null) {
+            entry = new CreatorWarps();
+            creators.put(warp.creator, entry);
+        }
+        if (entry.warps.put(nameIndex.keyOf(warp), warp) == null && warp.publicAll) {
+            entry.publicCount++;
+        }
+    }
+
+    public void remove(Warp warp) {
+        CreatorWarps entry = creators.get(warp.creator);
+        if (entry == null) {
+            return;
+        }
+        if (entry.warps.remove(nameIndex.keyOf(warp)) != null && warp.publicAll) {
+            entry.publicCount--;
+        }
+        if (entry.warps.isEmpty()) {
+            creators.remove(warp.creator);
+        }
+    }
+
+    public void clear() {
+        creators.clear();
+    }
+
+    public int count(String creator) {
+        CreatorWarps entry = creators.get(creator);
+        return entry == null ? 0 : entry.warps.size();
+    }
+
+    public int countPublic(String creator) {
+        CreatorWarps entry = creators.get(creator);
+        return entry == null ? 0 : entry.publicCount;
+    }
+
+    public int countPrivate(String creator) {
+        CreatorWarps entry = creators.get(creator);
+        return entry == null ? 0 : entry.warps.size() - entry.publicCount;
+    }
+
+    /**
+     * All players that created at least one warp.
+     */
+    public Collection<String> getCreators() {
+        return Collections.unmodifiableCollection(creators.keySet());
+    }
+
+    /**
+     * The warps of the given creator in collation order.
+     */
+    public Collection<Warp> getWarps(String creator) {
+        CreatorWarps entry = creators.get(creator);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(entry.warps.values());
+    }
+
+    private static class CreatorWarps {
+        private final TreeMap<WarpNameIndex.SortKey, Warp> warps = new TreeMap<WarpNameIndex.SortKey, Warp>();
+        private int publicCount;
+    }
+}
@@ -0,0 +1,61 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Maps each invited player to the warps the player is invited to, so these
+ * can be found without looking at the invitations of every warp.
+ */
+public class WarpInviteeIndex {
+    private final HashMap<String, HashSet<Warp>> invitees;
+
+    public WarpInviteeIndex() {
+        invitees = new HashMap<String, HashSet<Warp>>();
+    }
+
+    public void add(Warp warp) {
+        for (String invitee : warp.permissions) {
+            invite(invitee, warp);
+        }
+    }
+
+    public void remove(Warp warp) {
+        for (String invitee : warp.permissions) {
+            uninvite(invitee, warp);
+        }
+    }
+
+    public void invite(String invitee, Warp warp) {
+        HashSet<Warp> warps = invitees.get(invitee);
+        if (warps == null) {
+            warps = new HashSet<Warp>();
+            invitees.put(invitee, warps);
+        }
+        warps.add(warp);
+    }
+
+    public void uninvite(String invitee, Warp warp) {
+        HashSet<Warp> warps = invitees.get(invitee);
+        if (warps != null) {
+            warps.remove(warp);
+            if (warps.isEmpty()) {
+                invitees.remove(invitee);
+            }
+        }
+    }
+
+    public void clear() {
+        invitees.clear();
+    }
+
+    public Collection<Warp> getWarps(String invitee) {
+        HashSet<Warp> warps = invitees.get(invitee);
+        if (warps == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(warps);
+    }
+}
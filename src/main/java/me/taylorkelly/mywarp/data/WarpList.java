@@ -1,9 +1,9 @@
 package me.taylorkelly.mywarp.data;
 
-import java.text.Collator;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 
 import me.taylorkelly.mywarp.MyWarp;
@@ -15,14 +15,159 @@ import org.bukkit.entity.Player;
 
 public class WarpList {
     private HashMap<String, Warp> warpList;
+    private WarpNameIndex nameIndex;
+    private WarpCreatorIndex creatorIndex;
+    private WarpMatchIndex matchIndex;
+    private WarpInviteeIndex inviteeIndex;
+    private PublicWarpIndex publicIndex;
+    private WarpSpatialIndex spatialIndex;
+    private WarpAccessCache accessCache;
     private Server server;
-    private HashMap<String, Warp> welcomeMessage;
-
-    public WarpList(Server server) {
-        welcomeMessage = new HashMap<String, Warp>();
+    private TeleportScheduler scheduler;
+    private SignRegistry signs;
+    private WelcomePrompts welcomePrompts;
+    private boolean loaded;
+    private int version;
+    private volatile WarpSnapshot snapshot = WarpSnapshot.EMPTY;
+    private HashSet<String> unpublished;
+    private HashMap<String, WarpView> views;
+    private HashMap<String, BrowseSession> sessions;
+
+    public WarpList(Server server, TeleportScheduler scheduler) {
+        welcomePrompts = new WelcomePrompts();
         this.server = server;
-        WarpDataSource.initialize();
-        warpList = WarpDataSource.getMap();
+        this.scheduler = scheduler;
+        warpList = new HashMap<String, Warp>();
+        nameIndex = new WarpNameIndex();
+        creatorIndex = new WarpCreatorIndex(nameIndex);
+        matchIndex = new WarpMatchIndex(nameIndex);
+        inviteeIndex = new WarpInviteeIndex();
+        publicIndex = new PublicWarpIndex(nameIndex);
+        spatialIndex = new WarpSpatialIndex();
+        signs = new SignRegistry();
+        accessCache = new WarpAccessCache(creatorIndex, inviteeIndex);
+        views = new HashMap<String, WarpView>();
+        sessions = new HashMap<String, BrowseSession>();
+        unpublished = new HashSet<String>();
+    }
+
+    /**
+     * Fills the list with the warps loaded from the database. Until this is
+     * called the list is empty and {@link #isLoaded()} returns false.
+     */
+    public void load(HashMap<String, Warp> warps) {
+        warpList = warps;
+        for (Warp warp : warpList.values()) {
+            index(warp);
+        }
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void index(Warp warp) {
+        nameIndex.add(warp);
+        creatorIndex.add(warp);
+        publicIndex.add(warp);
+        matchIndex.add(warp);
+        inviteeIndex.add(warp);
+        spatialIndex.add(warp);
+        signs.bind(warp);
+        accessCache.grant(warp.creator, warp);
+        changed(warp);
+    }
+
+    private void unindex(Warp warp) {
+        accessCache.remove(warp);
+        spatialIndex.remove(warp);
+        inviteeIndex.remove(warp);
+        matchIndex.remove(warp);
+        publicIndex.remove(warp);
+        creatorIndex.remove(warp);
+        nameIndex.remove(warp);
+        changed(warp);
+    }
+
+    private void changed(Warp warp) {
+        unpublished.add(warp.name);
+        version++;
+    }
+
+    private void setPublic(Warp warp, boolean publicAll) {
+        creatorIndex.remove(warp);
+        publicIndex.remove(warp);
+        warp.setPublicAll(publicAll);
+        publicIndex.add(warp);
+        creatorIndex.add(warp);
+        changed(warp);
+    }
+
+    private void setCreator(Warp warp, String creator) {
+        String oldCreator = warp.creator;
+        creatorIndex.remove(warp);
+        warp.setCreator(creator);
+        creatorIndex.add(warp);
+        accessCache.revoke(oldCreator, warp);
+        accessCache.grant(creator, warp);
+        changed(warp);
+    }
+
+    /**
+     * Drops the cached warp access of the given player, e.g. because the
+     * player's permissions might have changed.
+     */
+    public void invalidateAccess(String player) {
+        accessCache.invalidate(player);
+        views.remove(player);
+        sessions.remove(player);
+    }
+
+    public void invalidateAccess() {
+        accessCache.invalidateAll();
+        views.clear();
+        sessions.clear();
+    }
+
+    /**
+     * The list and search the player browsed last, kept until the player
+     * quits, changes worlds or the plugin is reloaded.
+     */
+    public BrowseSession getSession(Player player) {
+        BrowseSession session = sessions.get(player.getName());
+        if (session == null) {
+            session = new BrowseSession(this, player);
+            sessions.put(player.getName(), session);
+        }
+        return session;
+    }
+
+    /**
+     * The warps as they were when they were last published. Unlike
+     * everything else here, this may be called from any thread.
+     */
+    public WarpSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes the current warps as a new snapshot if they changed since
+     * the last one, only the warps that changed are copied.
+     */
+    public void publishSnapshot() {
+        if (snapshot.getVersion() != version) {
+            snapshot = snapshot.update(version, unpublished, warpList);
+            unpublished.clear();
+        }
+    }
+
+    /**
+     * Changes with every change to the warps or their access, results that
+     * were computed for an older version might be outdated.
+     */
+    int getVersion() {
+        return version;
     }
 
     public void addWarp(String name, Player player) {
@@ -34,6 +179,7 @@ public class WarpList {
                 } else {
                     Warp warp = new Warp(name, player);
                     warpList.put(name, warp);
+                    index(warp);
                     WarpDataSource.addWarp(warp);
                     player.sendMessage(ChatColor.AQUA + "Successfully created '" + name
                             + "'");
@@ -56,13 +202,7 @@ public class WarpList {
     }
 
     private int numWarpsPlayer(Player player) {
-        int size = 0;
-        for (Warp warp : warpList.values()) {
-            String creator = warp.creator;
-            if (creator.equals(player.getName()))
-                size++;
-        }
-        return size;
+        return creatorIndex.count(player.getName());
     }
 
     private boolean playerCanBuildWarp(Player player) {
@@ -74,14 +214,7 @@ public class WarpList {
     }
     
     private int numPublicWarpsPlayer(Player player) {
-        int size = 0;
-        for (Warp warp : warpList.values()) {
-            boolean publicAll = warp.publicAll;
-            String creator = warp.creator;
-            if (creator.equals(player.getName()) && publicAll)
-                size++;
-        }
-        return size;
+        return creatorIndex.countPublic(player.getName());
     }
 
     private boolean playerCanBuildPublicWarp(Player player) {
@@ -109,6 +242,7 @@ public class WarpList {
                 } else {
                     Warp warp = new Warp(name, player, false);
                     warpList.put(name, warp);
+                    index(warp);
                     WarpDataSource.addWarp(warp);
                     player.sendMessage(ChatColor.AQUA + "Successfully created '" + name
                             + "'");
@@ -132,45 +266,61 @@ public class WarpList {
     }
 
     private int numPrivateWarpsPlayer(Player player) {
-        int size = 0;
-        for (Warp warp : warpList.values()) {
-            boolean privateAll = !warp.publicAll;
-            String creator = warp.creator;
-            if (creator.equals(player.getName()) && privateAll)
-                size++;
-        }
-        return size;
+        return creatorIndex.countPrivate(player.getName());
     }
 
     public void blindAdd(Warp warp) {
-        warpList.put(warp.name, warp);
+        Warp old = warpList.put(warp.name, warp);
+        if (old != null) {
+            unindex(old);
+            scheduler.cancel(old);
+        }
+        index(warp);
     }
 
     public void warpTo(String name, Player player) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
-            Warp warp = warpList.get(name);
-            if (warp.playerCanWarp(player)) {
-                warp.warp(player, server);
-                player.sendMessage(ChatColor.AQUA + warp.welcomeMessage);
-            } else {
-                player.sendMessage(ChatColor.RED + "You do not have permission to warp to '" + name + "'");
-            }
+            warpTo(warpList.get(name), player);
         } else {
             player.sendMessage(ChatColor.RED + "No such warp '" + name + "'");
         }
     }
 
+    public void warpTo(Warp warp, Player player) {
+        if (accessCache.get(player).canWarp(warp)) {
+            scheduler.submit(warp, player);
+        } else {
+            player.sendMessage(ChatColor.RED + "You do not have permission to warp to '" + warp.name + "'");
+        }
+    }
+
+    /**
+     * The warp with exactly the given name.
+     */
+    public Warp getWarp(String name) {
+        return warpList.get(name);
+    }
+
+    public SignRegistry getSigns() {
+        return signs;
+    }
+
     public void deleteWarp(String name, Player player) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
                 warpList.remove(name);
+                unindex(warp);
+                scheduler.cancel(warp);
                 WarpDataSource.deleteWarp(warp);
                 player.sendMessage(ChatColor.AQUA + "You have deleted '" + name + "'");
+                int orphans = signs.unbind(warp);
+                if (orphans > 0) {
+                    player.sendMessage(ChatColor.YELLOW + "" + orphans + " sign(s) still lead to '" + name
+                            + "' and won't work until it is created again.");
+                }
             } else {
                 player.sendMessage(ChatColor.RED + "You do not have permission to delete '" + name + "'");
             }
@@ -180,14 +330,13 @@ public class WarpList {
     }
 
     public void privatize(String name, Player player) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
                 if (playerCanBuildPrivateWarp(player)) {
-                    warp.publicAll = false;
-                    WarpDataSource.publicizeWarp(warp, false);
+                    setPublic(warp, false);
+                    WarpDataSource.updateWarp(warp);
                     player.sendMessage(ChatColor.AQUA + "You have privatized '" + name
                             + "'");
                     player.sendMessage("If you'd like to invite others to it,");
@@ -210,8 +359,7 @@ public class WarpList {
     }
 
     public void invite(String name, Player player, String inviteeName) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
@@ -221,7 +369,10 @@ public class WarpList {
                     player.sendMessage(ChatColor.RED + inviteeName + " is the creator, of course he's the invited!");
                 } else {
                     warp.invite(inviteeName);
-                    WarpDataSource.updatePermissions(warp);
+                    inviteeIndex.invite(inviteeName, warp);
+                    accessCache.grant(inviteeName, warp);
+                    changed(warp);
+                    WarpDataSource.updateWarp(warp);
                     player.sendMessage(ChatColor.AQUA + "You have invited " + inviteeName + " to '" + name + "'");
                     if (warp.publicAll) {
                         player.sendMessage(ChatColor.RED + "But '" + name + "' is still public.");
@@ -241,14 +392,13 @@ public class WarpList {
     }
 
     public void publicize(String name, Player player) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
                 if (playerCanBuildPublicWarp(player)) {
-                    warp.publicAll = true;
-                    WarpDataSource.publicizeWarp(warp, true);
+                    setPublic(warp, true);
+                    WarpDataSource.updateWarp(warp);
                     player.sendMessage(ChatColor.AQUA + "You have publicized '" + name
                             + "'");
                 } else {
@@ -268,8 +418,7 @@ public class WarpList {
     }
 
     public void uninvite(String name, Player player, String inviteeName) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
@@ -279,7 +428,10 @@ public class WarpList {
                     player.sendMessage(ChatColor.RED + "You can't uninvite yourself. You're the creator!");
                 } else {
                     warp.uninvite(inviteeName);
-                    WarpDataSource.updatePermissions(warp);
+                    inviteeIndex.uninvite(inviteeName, warp);
+                    accessCache.revoke(inviteeName, warp);
+                    changed(warp);
+                    WarpDataSource.updateWarp(warp);
                     player.sendMessage(ChatColor.AQUA + "You have uninvited " + inviteeName + " from '" + name + "'");
                     if (warp.publicAll) {
                         player.sendMessage(ChatColor.RED + "But '" + name + "' is still public.");
@@ -306,42 +458,69 @@ public class WarpList {
     }
     
     public ArrayList<Warp> getSortedWarpsPerCreator(Player player, String creator, int start, int size) {
-        ArrayList<Warp> ret = new ArrayList<Warp>();
-        List<String> names = new ArrayList<String>(warpList.keySet());
-        Collator collator = Collator.getInstance();
-        collator.setStrength(Collator.SECONDARY);
-        Collections.sort(names, collator);
-
-        int index = 0;
-        int currentCount = 0;
-        while (index < names.size() && ret.size() < size) {
-            String currName = names.get(index);
-            Warp warp = warpList.get(currName);
-            if (warp.playerCanWarp(player) && (creator != null ? warp.playerIsCreator(creator) : true)) {
-                if (currentCount >= start) {
-                    ret.add(warp);
-                } else {
-                    currentCount++;
+        return getView(player, creator).getPage(start, size);
+    }
+
+    /**
+     * The warps the player can see, all or only those of the given creator.
+     * The last view of each player is kept until the warps or the player's
+     * access change, so paging through a list doesn't filter all warps for
+     * every page.
+     */
+    private WarpView getView(Player player, String creator) {
+        WarpView view = views.get(player.getName());
+        WarpAccess access = accessCache.get(player);
+        if (view == null || !view.isCurrent(version, creator, access)) {
+            Collection<Warp> warps = creator != null ? creatorIndex.getWarps(creator) : getAccessibleWarps(access);
+            ArrayList<Warp> visible = new ArrayList<Warp>(warps.size());
+            for (Warp warp : warps) {
+                if (access.canWarp(warp)) {
+                    visible.add(warp);
                 }
             }
-            index++;
+            view = new WarpView(version, creator, access, visible);
+            views.put(player.getName(), view);
+        }
+        return view;
+    }
+
+    /**
+     * Resolves the given name to the name of the warp the player most likely
+     * means. An accessible warp with exactly this name always wins, so the
+     * partial matching is skipped for it.
+     */
+    private String getMatch(String name, Player player) {
+        Warp warp = warpList.get(name);
+        if (warp != null && accessCache.get(player).canWarp(warp)) {
+            return name;
         }
-        return ret;
+        return getMatches(name, player).getMatch(name);
     }
 
     public MatchList getMatches(String name, Player player) {
+        return getMatches(name, matchIndex.candidates(name), accessCache.get(player));
+    }
+
+    /**
+     * Matches a query that contains the query of the previous matches. Every
+     * warp matching it also matched the previous query, so only the previous
+     * matches have to be looked at. The previous matches must be from the
+     * current version.
+     */
+    MatchList refineMatches(MatchList previous, String name, Player player) {
+        List<Warp> candidates = new ArrayList<Warp>(previous.exactMatches.size() + previous.matches.size());
+        candidates.addAll(previous.exactMatches);
+        candidates.addAll(previous.matches);
+        nameIndex.sort(candidates);
+        return getMatches(name, candidates, accessCache.get(player));
+    }
+
+    private MatchList getMatches(String name, Collection<Warp> candidates, WarpAccess access) {
         ArrayList<Warp> exactMatches = new ArrayList<Warp>();
         ArrayList<Warp> matches = new ArrayList<Warp>();
 
-        List<String> names = new ArrayList<String>(warpList.keySet());
-        Collator collator = Collator.getInstance();
-        collator.setStrength(Collator.SECONDARY);
-        Collections.sort(names, collator);
-
-        for (int i = 0; i < names.size(); i++) {
-            String currName = names.get(i);
-            Warp warp = warpList.get(currName);
-            if (warp.playerCanWarp(player)) {
+        for (Warp warp : candidates) {
+            if (access.canWarp(warp)) {
                 if (warp.name.equalsIgnoreCase(name)) {
                     exactMatches.add(warp);
                 } else if (warp.name.toLowerCase().contains(name.toLowerCase())) {
@@ -364,20 +543,15 @@ public class WarpList {
     
     public String getMatchingCreator(Player player, String creator) {
         ArrayList<String> matches = new ArrayList<String>();
-        List<String> names = new ArrayList<String>(warpList.keySet());
-        Collator collator = Collator.getInstance();
-        collator.setStrength(Collator.SECONDARY);
-        Collections.sort(names, collator);
-
-        for (int i = 0; i < names.size(); i++) {
-            String currName = names.get(i);
-            Warp warp = warpList.get(currName);
-            if (warp.playerCanWarp(player)) {
-                if (warp.creator.equalsIgnoreCase(creator)) {
+        WarpAccess access = accessCache.get(player);
+        String lowerCreator = creator.toLowerCase();
+        for (String warpCreator : creatorIndex.getCreators()) {
+            if (warpCreator.equalsIgnoreCase(creator)) {
+                if (canWarpToAny(access, warpCreator)) {
                     return creator;
-                } else if (warp.creator.toLowerCase().contains(creator.toLowerCase()) && !matches.contains(warp.creator)) {
-                    matches.add(warp.creator);
                 }
+            } else if (warpCreator.toLowerCase().contains(lowerCreator) && canWarpToAny(access, warpCreator)) {
+                matches.add(warpCreator);
             }
         }
         if (matches.size() == 1) {
@@ -386,9 +560,20 @@ public class WarpList {
         return "";
     }
 
+    private boolean canWarpToAny(WarpAccess access, String creator) {
+        if (access.seesAll() || creatorIndex.countPublic(creator) > 0) {
+            return true;
+        }
+        for (Warp warp : creatorIndex.getWarps(creator)) {
+            if (access.canWarp(warp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void give(String name, Player player, String giveeName) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
@@ -401,8 +586,8 @@ public class WarpList {
                         if (warp.publicAll) {
                             if (playerCanBuildWarp(match)) {
                                 if (playerCanBuildPublicWarp(match)) {
-                                    warp.setCreator(giveeName);
-                                    WarpDataSource.updateCreator(warp);
+                                    setCreator(warp, giveeName);
+                                    WarpDataSource.updateWarp(warp);
                                     player.sendMessage(ChatColor.AQUA
                                             + "You have given '" + name + "' to "
                                             + giveeName);
@@ -434,8 +619,8 @@ public class WarpList {
                         } else {
                             if (playerCanBuildWarp(match)) {
                                 if (playerCanBuildPrivateWarp(match)) {
-                                    warp.setCreator(giveeName);
-                                    WarpDataSource.updateCreator(warp);
+                                    setCreator(warp, giveeName);
+                                    WarpDataSource.updateWarp(warp);
                                     player.sendMessage(ChatColor.AQUA
                                             + "You have given '" + name + "' to "
                                             + giveeName);
@@ -478,32 +663,23 @@ public class WarpList {
     }
 
     public double getMaxWarps(Player player) {
-        int count = 0;
-        for (Warp warp : warpList.values()) {
-            if (warp.playerCanWarp(player)) {
-                count++;
-            }
+        WarpAccess access = accessCache.get(player);
+        if (access.seesAll()) {
+            return warpList.size();
         }
-        return count;
+        return publicIndex.size() + access.getPrivateWarps().size();
     }
 
     public double getMaxWarpsPerCreator(Player player, String creator) {
-        int count = 0;
-        for (Warp warp : warpList.values()) {
-            if (warp.playerCanWarp(player) && warp.playerIsCreator(creator)) {
-                count++;
-            }
-        }
-        return count;
+        return getView(player, creator).size();
     }
 
     public void welcomeMessage(String name, Player player) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
             if (warp.playerCanModify(player)) {
-                welcomeMessage.put(player.getName(), warp);
+                welcomePrompts.await(player.getName(), warp, WarpSettings.welcomeTimeout);
                 player.sendMessage(ChatColor.AQUA + "Enter the welcome message for '" + name + "'");
             } else {
                 player.sendMessage(ChatColor.RED + "You do not have permission to modify '" + name + "'");
@@ -513,27 +689,34 @@ public class WarpList {
         }
     }
 
-    public boolean waitingForWelcome(Player player) {
-        return welcomeMessage.containsKey(player.getName());
+    /**
+     * Takes the warp the player was asked to type a welcome message for.
+     * Unlike everything else here, this may be called from any thread.
+     *
+     * @return null if the player wasn't asked or took too long
+     */
+    public Warp takeWelcomePrompt(Player player) {
+        return welcomePrompts.take(player.getName());
     }
 
-    public void setWelcomeMessage(Player player, String message) {
-        if (welcomeMessage.containsKey(player.getName())) {
-            Warp warp = welcomeMessage.get(player.getName());
-            warp.welcomeMessage = message;
-            WarpDataSource.updateWelcomeMessage(warp);
-            player.sendMessage(ChatColor.AQUA + "Changed welcome message for '" + warp.name + "' to:");
-            player.sendMessage(message);
-        }
-
+    public void cancelWelcomePrompt(String player) {
+        welcomePrompts.cancel(player);
     }
 
-    public void notWaiting(Player player) {
-        welcomeMessage.remove(player.getName());
+    public void setWelcomeMessage(Player player, Warp warp, String message) {
+        if (warpList.get(warp.name) != warp) {
+            player.sendMessage(ChatColor.RED + "The warp '" + warp.name + "' doesn't exist anymore.");
+            return;
+        }
+        warp.setWelcomeMessage(message);
+        changed(warp);
+        WarpDataSource.updateWarp(warp);
+        player.sendMessage(ChatColor.AQUA + "Changed welcome message for '" + warp.name + "' to:");
+        player.sendMessage(message);
     }
 
     public void list(Player player) {
-        ArrayList<Warp> results = warpsInvitedTo(player);
+        Collection<Warp> results = warpsInvitedTo(player);
 
         if (results.size() == 0) {
             player.sendMessage(ChatColor.RED + "You can access no warps.");
@@ -543,29 +726,39 @@ public class WarpList {
         }
     }
 
-    private ArrayList<Warp> warpsInvitedTo(Player player) {
-        ArrayList<Warp> results = new ArrayList<Warp>();
-
-        List<String> names = new ArrayList<String>(warpList.keySet());
-        Collator collator = Collator.getInstance();
-        collator.setStrength(Collator.SECONDARY);
-        Collections.sort(names, collator);
+    private Collection<Warp> warpsInvitedTo(Player player) {
+        return getAccessibleWarps(accessCache.get(player));
+    }
 
-        for (String name : names) {
-            Warp warp = warpList.get(name);
-            if (warp.playerCanWarp(player)) {
-                results.add(warp);
-            }
+    /**
+     * All warps of the given access in collation order. Unless the player
+     * sees every warp, only the public warps and the player's own private
+     * warps are looked at.
+     */
+    private Collection<Warp> getAccessibleWarps(WarpAccess access) {
+        if (access.seesAll()) {
+            return nameIndex.values();
         }
-        return results;
+        List<Warp> privateWarps = access.getPrivateWarps();
+        nameIndex.sort(privateWarps);
+        return nameIndex.merge(publicIndex.values(), privateWarps);
+    }
+
+    /**
+     * The warps in the world of the player that the player may warp to,
+     * closest first.
+     */
+    public List<Warp> getNearest(Player player, int count, double radius) {
+        Location location = player.getLocation();
+        return spatialIndex.getNearest(player.getWorld().getName(), location.getX(), location.getY(),
+                location.getZ(), count, radius, accessCache.get(player));
     }
 
     public void point(String name, Player player) {
-        MatchList matches = this.getMatches(name, player);
-        name = matches.getMatch(name);
+        name = getMatch(name, player);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
-            if (warp.playerCanWarp(player)) {
+            if (accessCache.get(player).canWarp(warp)) {
                 player.setCompassTarget(warp.getLocation(server));
                 player.sendMessage(ChatColor.AQUA + "Your compass now guides you to '" + name + "'");
             } else {
@@ -577,13 +770,31 @@ public class WarpList {
     }
 
     public void adminWarpTo(String name, Player invitee, Player admin) {
-        MatchList matches = this.getMatches(name, admin);
-        name = matches.getMatch(name);
+        name = getMatch(name, admin);
+        if (warpList.containsKey(name)) {
+            Warp warp = warpList.get(name);
+            if (scheduler.submit(warp, invitee)) {
+                admin.sendMessage(ChatColor.AQUA + "Successfully warped " + invitee.getName());
+            } else {
+                admin.sendMessage(ChatColor.AQUA + "Queued " + invitee.getName() + " for warping to '" + name + "'");
+            }
+        } else {
+            admin.sendMessage(ChatColor.RED + "No such warp '" + name + "'");
+        }
+    }
+
+    /**
+     * Queues all given players for the warp, they are teleported over the
+     * next ticks.
+     */
+    public void adminWarpTo(String name, Collection<Player> invitees, Player admin) {
+        name = getMatch(name, admin);
         if (warpList.containsKey(name)) {
             Warp warp = warpList.get(name);
-            warp.warp(invitee, server);
-            invitee.sendMessage(ChatColor.AQUA + warp.welcomeMessage);
-            admin.sendMessage(ChatColor.AQUA + "Successfully warped " + invitee.getName());
+            for (Player invitee : invitees) {
+                scheduler.submit(warp, invitee);
+            }
+            admin.sendMessage(ChatColor.AQUA + "Warping " + invitees.size() + " players to '" + name + "'");
         } else {
             admin.sendMessage(ChatColor.RED + "No such warp '" + name + "'");
         }
@@ -0,0 +1,94 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Trigram index over the lower-cased warp names, used to find the warps whose
+ * name contains a query without looking at every warp.
+ *
+ * Queries shorter than a trigram match too many names to be worth indexing,
+ * those fall back to walking the name index. Postings are sets, as common
+ * trigrams are shared by most warps and removing a warp from a list of them
+ * would cost as much as walking all warps.
+ */
+public class WarpMatchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final WarpNameIndex nameIndex;
+    private final HashMap<String, LinkedHashSet<Warp>> postings;
+
+    public WarpMatchIndex(WarpNameIndex nameIndex) {
+        this.nameIndex = nameIndex;
+        postings = new HashMap<String, LinkedHashSet<Warp>>();
+    }
+
+    public void add(Warp warp) {
+        for (String gram : grams(warp.name.toLowerCase())) {
+            LinkedHashSet<Warp> posting = postings.get(gram);
+            if (posting == null) {
+                posting = new LinkedHashSet<Warp>(2);
+                postings.put(gram, posting);
+            }
+            posting.add(warp);
+        }
+    }
+
+    public void remove(Warp warp) {
+        for (String gram : grams(warp.name.toLowerCase())) {
+            LinkedHashSet<Warp> posting = postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(warp);
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Returns, in collation order, the warps whose name might contain the
+     * given query (ignoring case). The result always includes every real
+     * match, callers still have to check each warp against the query.
+     */
+    public Collection<Warp> candidates(String query) {
+        String lowerQuery = query.toLowerCase();
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            return nameIndex.values();
+        }
+
+        // every trigram of the query has to be part of a matching name, so
+        // the shortest posting list of them holds all matches
+        LinkedHashSet<Warp> shortest = null;
+        for (String gram : grams(lowerQuery)) {
+            LinkedHashSet<Warp> posting = postings.get(gram);
+            if (posting == null) {
+                return new ArrayList<Warp>();
+            }
+            if (shortest == null || posting.size() < shortest.size()) {
+                shortest = posting;
+            }
+        }
+
+        List<Warp> ret = new ArrayList<Warp>(shortest);
+        nameIndex.sort(ret);
+        return ret;
+    }
+
+    private static HashSet<String> grams(String lowerName) {
+        HashSet<String> ret = new HashSet<String>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerName.length(); i++) {
+            ret.add(lowerName.substring(i, i + GRAM_LENGTH));
+        }
+        return ret;
+    }
+}
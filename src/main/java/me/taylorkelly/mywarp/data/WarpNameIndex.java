@@ -0,0 +1,135 @@
+package me.taylorkelly.mywarp.data;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Keeps all warps ordered by their collated name, so listings and searches can
+ * walk the warps in order instead of sorting every name on each call.
+ *
+ * The collation keys are computed once when a warp is added.
+ */
+public class WarpNameIndex {
+    private final Collator collator;
+    private final TreeMap<SortKey, Warp> sorted;
+    private final HashMap<String, SortKey> keys;
+
+    public WarpNameIndex() {
+        collator = Collator.getInstance();
+        collator.setStrength(Collator.SECONDARY);
+        sorted = new TreeMap<SortKey, Warp>();
+        keys = new HashMap<String, SortKey>();
+    }
+
+    public void add(Warp warp) {
+        SortKey key = new SortKey(collator.getCollationKey(warp.name), warp.name);
+        SortKey old = keys.put(warp.name, key);
+        if (old != null) {
+            sorted.remove(old);
+        }
+        sorted.put(key, warp);
+    }
+
+    public void remove(Warp warp) {
+        SortKey key = keys.remove(warp.name);
+        if (key != null) {
+            sorted.remove(key);
+        }
+    }
+
+    public void clear() {
+        sorted.clear();
+        keys.clear();
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+
+    /**
+     * The sort key of an indexed warp, so other indexes can keep their
+     * entries in the same order without collating names again.
+     */
+    SortKey keyOf(Warp warp) {
+        return keys.get(warp.name);
+    }
+
+    /**
+     * Sorts the given indexed warps into collation order.
+     */
+    public void sort(List<Warp> warps) {
+        Collections.sort(warps, new Comparator<Warp>() {
+            @Override
+            public int compare(Warp first, Warp second) {
+                return keyOf(first).compareTo(keyOf(second));
+            }
+        });
+    }
+
+    /**
+     * Merges two collections of indexed warps that are both in collation
+     * order into one sorted list.
+     */
+    public List<Warp> merge(Collection<Warp> first, Collection<Warp> second) {
+        ArrayList<Warp> ret = new ArrayList<Warp>(first.size() + second.size());
+        Iterator<Warp> firstIt = first.iterator();
+        Iterator<Warp> secondIt = second.iterator();
+        Warp firstWarp = firstIt.hasNext() ? firstIt.next() : null;
+        Warp secondWarp = secondIt.hasNext() ? secondIt.next() : null;
+        while (firstWarp != null && secondWarp != null) {
+            if (keyOf(firstWarp).compareTo(keyOf(secondWarp)) <= 0) {
+                ret.add(firstWarp);
+                firstWarp = firstIt.hasNext() ? firstIt.next() : null;
+            } else {
+                ret.add(secondWarp);
+                secondWarp = secondIt.hasNext() ? secondIt.next() : null;
+            }
+        }
+        for (; firstWarp != null; firstWarp = firstIt.hasNext() ? firstIt.next() : null) {
+            ret.add(firstWarp);
+        }
+        for (; secondWarp != null; secondWarp = secondIt.hasNext() ? secondIt.next() : null) {
+            ret.add(secondWarp);
+        }
+        return ret;
+    }
+
+    /**
+     * All indexed warps in collation order. The returned view is backed by
+     * the index and must not be iterated while the index is modified.
+     */
+    public Collection<Warp> values() {
+        return Collections.unmodifiableCollection(sorted.values());
+    }
+
+    /**
+     * Collated name plus the raw name as tie breaker, names that only differ
+     * in case are equal on secondary strength but are still distinct warps.
+     */
+    static class SortKey implements Comparable<SortKey> {
+        private final CollationKey collationKey;
+        private final String name;
+
+        SortKey(CollationKey collationKey, String name) {
+            this.collationKey = collationKey;
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(SortKey other) {
+            int result = collationKey.compareTo(other.collationKey);
+            if (result != 0) {
+                return result;
+            }
+            return name.compareTo(other.name);
+        }
+    }
+}
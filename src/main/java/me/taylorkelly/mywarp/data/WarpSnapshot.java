@@ -0,0 +1,141 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * All warps as they were at one version of the warp list. A snapshot never
+ * changes, so it can be read from any thread without locking; changes to
+ * the warps are published as a new snapshot.
+ *
+ * The warps are spread over a fixed number of buckets by their name. A new
+ * snapshot shares every bucket without a changed warp with the previous
+ * one, so publishing a change copies one bucket, about 1/64 of the warps,
+ * instead of all of them.
+ */
+public final class WarpSnapshot {
+    private static final int BUCKETS = 64;
+
+    static final WarpSnapshot EMPTY = new WarpSnapshot(0, emptyBuckets(), 0);
+
+    private final int version;
+    private final ArrayList<HashMap<String, WarpState>> buckets;
+    private final int size;
+
+    private WarpSnapshot(int version, ArrayList<HashMap<String, WarpState>> buckets, int size) {
+        this.version = version;
+        this.buckets = buckets;
+        this.size = size;
+    }
+
+    /**
+     * A snapshot of the given version that differs from this one in the
+     * warps of the given names.
+     *
+     * @param warps
+     *            the current warps by their name, a name that is missing was
+     *            deleted
+     */
+    WarpSnapshot update(int version, Collection<String> names, Map<String, Warp> warps) {
+        ArrayList<HashMap<String, WarpState>> copy = new ArrayList<HashMap<String, WarpState>>(buckets);
+        boolean[] copied = new boolean[BUCKETS];
+        int count = size;
+        for (String name : names) {
+            int index = bucketOf(name);
+            if (!copied[index]) {
+                copy.set(index, new HashMap<String, WarpState>(copy.get(index)));
+                copied[index] = true;
+            }
+            HashMap<String, WarpState> bucket = copy.get(index);
+            Warp warp = warps.get(name);
+            if (warp == null) {
+                if (bucket.remove(name) != null) {
+                    count--;
+                }
+                continue;
+            }
+            WarpState state = bucket.get(name);
+            if (state == null || !state.isCopyOf(warp)) {
+                if (bucket.put(name, new WarpState(warp)) == null) {
+                    count++;
+                }
+            }
+        }
+        return new WarpSnapshot(version, copy, count);
+    }
+
+    /**
+     * The version of the warp list this is a snapshot of.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * The warp with exactly the given name, or null.
+     */
+    public WarpState get(String name) {
+        return buckets.get(bucketOf(name)).get(name);
+    }
+
+    public Collection<WarpState> getWarps() {
+        return new AbstractCollection<WarpState>() {
+            @Override
+            public Iterator<WarpState> iterator() {
+                return new Iterator<WarpState>() {
+                    private int next;
+                    private Iterator<WarpState> current = Collections.<WarpState> emptyList().iterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!current.hasNext() && next < BUCKETS) {
+                            current = buckets.get(next++).values().iterator();
+                        }
+                        return current.hasNext();
+                    }
+
+                    @Override
+                    public WarpState next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return current.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int bucketOf(String name) {
+        int hash = name.hashCode();
+        return (hash ^ (hash >>> 16)) & (BUCKETS - 1);
+    }
+
+    private static ArrayList<HashMap<String, WarpState>> emptyBuckets() {
+        ArrayList<HashMap<String, WarpState>> buckets = new ArrayList<HashMap<String, WarpState>>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.add(new HashMap<String, WarpState>());
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,200 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the warps of every world into a grid of 16x16 cells, the same as
+ * the chunks, so the warps near a location are found by looking at the
+ * surrounding cells instead of at every warp.
+ */
+public class WarpSpatialIndex {
+    private static final int CELL_SHIFT = 4;
+    private static final double CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final HashMap<String, HashMap<Long, ArrayList<Warp>>> worlds;
+
+    public WarpSpatialIndex() {
+        worlds = new HashMap<String, HashMap<Long, ArrayList<Warp>>>();
+    }
+
+    public void add(Warp warp) {
+        HashMap<Long, ArrayList<Warp>> cells = worlds.get(warp.world);
+        if (cells == null) {
+            cells = new HashMap<Long, ArrayList<Warp>>();
+            worlds.put(warp.world, cells);
+        }
+        Long key = cellKey(cellOf(warp.x), cellOf(warp.z));
+        ArrayList<Warp> cell = cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<Warp>(2);
+            cells.put(key, cell);
+        }
+        cell.add(warp);
+    }
+
+    public void remove(Warp warp) {
+        HashMap<Long, ArrayList<Warp>> cells = worlds.get(warp.world);
+        if (cells == null) {
+            return;
+        }
+        Long key = cellKey(cellOf(warp.x), cellOf(warp.z));
+        ArrayList<Warp> cell = cells.get(key);
+        if (cell != null && cell.remove(warp) && cell.isEmpty()) {
+            cells.remove(key);
+            if (cells.isEmpty()) {
+                worlds.remove(warp.world);
+            }
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * The warps of the world the given access allows, closest first.
+     *
+     * The cells are visited in rings around the location until the ring is
+     * farther away than the radius or than the farthest of the warps found
+     * so far. Once a ring would cover more cells than the world has, the
+     * remaining cells are simply all looked at.
+     *
+     * @param count
+     *            the maximum number of warps
+     * @param radius
+     *            the maximum distance of the warps
+     */
+    public List<Warp> getNearest(String world, double x, double y, double z, int count, double radius, WarpAccess access) {
+        HashMap<Long, ArrayList<Warp>> cells = worlds.get(world);
+        if (cells == null || count <= 0) {
+            return Collections.emptyList();
+        }
+
+        Candidates candidates = new Candidates(x, y, z, count, radius, access);
+        int centerX = cellOf(x);
+        int centerZ = cellOf(z);
+        for (int ring = 0;; ring++) {
+            long side = 2L * ring + 1;
+            if (side * side >= cells.size()) {
+                candidates.clear();
+                for (ArrayList<Warp> cell : cells.values()) {
+                    candidates.offer(cell);
+                }
+                break;
+            }
+
+            if (ring == 0) {
+                candidates.offer(cells.get(cellKey(centerX, centerZ)));
+            } else {
+                for (int dx = -ring; dx <= ring; dx++) {
+                    candidates.offer(cells.get(cellKey(centerX + dx, centerZ - ring)));
+                    candidates.offer(cells.get(cellKey(centerX + dx, centerZ + ring)));
+                }
+                for (int dz = -ring + 1; dz < ring; dz++) {
+                    candidates.offer(cells.get(cellKey(centerX - ring, centerZ + dz)));
+                    candidates.offer(cells.get(cellKey(centerX + ring, centerZ + dz)));
+                }
+            }
+
+            // every cell outside of this ring is at least that far away
+            double reach = ring * CELL_SIZE;
+            if (reach >= radius || candidates.isSettled(reach)) {
+                break;
+            }
+        }
+        return candidates.toList();
+    }
+
+    private static int cellOf(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+
+    /**
+     * The closest warps found so far, the farthest of them at the head of
+     * the queue.
+     */
+    private static class Candidates {
+        private final double x;
+        private final double y;
+        private final double z;
+        private final int count;
+        private final double radiusSquared;
+        private final WarpAccess access;
+        private final PriorityQueue<Candidate> queue;
+
+        private Candidates(double x, double y, double z, int count, double radius, WarpAccess access) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.count = count;
+            this.radiusSquared = radius * radius;
+            this.access = access;
+            queue = new PriorityQueue<Candidate>(count, new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate a, Candidate b) {
+                    return Double.compare(b.distanceSquared, a.distanceSquared);
+                }
+            });
+        }
+
+        private void offer(ArrayList<Warp> cell) {
+            if (cell == null) {
+                return;
+            }
+            for (Warp warp : cell) {
+                if (!access.canWarp(warp)) {
+                    continue;
+                }
+                double dx = warp.x - x;
+                double dy = warp.y - y;
+                double dz = warp.z - z;
+                double distanceSquared = dx * dx + dy * dy + dz * dz;
+                if (distanceSquared > radiusSquared) {
+                    continue;
+                }
+                if (queue.size() < count) {
+                    queue.add(new Candidate(warp, distanceSquared));
+                } else if (distanceSquared < queue.peek().distanceSquared) {
+                    queue.poll();
+                    queue.add(new Candidate(warp, distanceSquared));
+                }
+            }
+        }
+
+        private boolean isSettled(double reach) {
+            return queue.size() == count && queue.peek().distanceSquared <= reach * reach;
+        }
+
+        private void clear() {
+            queue.clear();
+        }
+
+        private List<Warp> toList() {
+            Warp[] ret = new Warp[queue.size()];
+            for (int i = ret.length - 1; i >= 0; i--) {
+                ret[i] = queue.poll().warp;
+            }
+            return Arrays.asList(ret);
+        }
+    }
+
+    private static class Candidate {
+        private final Warp warp;
+        private final double distanceSquared;
+
+        private Candidate(Warp warp, double distanceSquared) {
+            this.warp = warp;
+            this.distanceSquared = distanceSquared;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An unchangeable copy of a warp as it was at one point in time, safe to
+ * be read from any thread.
+ */
+public final class WarpState {
+    private final Warp source;
+    private final int revision;
+    private final String name;
+    private final String creator;
+    private final String world;
+    private final double x;
+    private final int y;
+    private final double z;
+    private final int yaw;
+    private final int pitch;
+    private final boolean publicAll;
+    private final String welcomeMessage;
+    private final Set<String> permissions;
+
+    WarpState(Warp warp) {
+        source = warp;
+        revision = warp.getRevision();
+        name = warp.name;
+        creator = warp.creator;
+        world = warp.world;
+        x = warp.x;
+        y = warp.y;
+        z = warp.z;
+        yaw = warp.yaw;
+        pitch = warp.pitch;
+        publicAll = warp.publicAll;
+        welcomeMessage = warp.welcomeMessage;
+        permissions = Collections.unmodifiableSet(new LinkedHashSet<String>(warp.permissions));
+    }
+
+    /**
+     * Whether this is a copy of the current state of the warp.
+     */
+    boolean isCopyOf(Warp warp) {
+        return source == warp && revision == warp.getRevision();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public int getYaw() {
+        return yaw;
+    }
+
+    public int getPitch() {
+        return pitch;
+    }
+
+    public boolean isPublic() {
+        return publicAll;
+    }
+
+    public String getWelcomeMessage() {
+        return welcomeMessage;
+    }
+
+    /**
+     * The invited players.
+     */
+    public Set<String> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Whether the player may use the warp without any admin rights.
+     */
+    public boolean isAccessibleFor(String player) {
+        return publicAll || creator.equals(player) || permissions.contains(player);
+    }
+}
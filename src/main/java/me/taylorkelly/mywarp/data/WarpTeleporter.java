@@ -0,0 +1,286 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.bukkit.ChatColor;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Teleports players to warps. The landing spot is the first place above the
+ * warp with two free blocks for the player, it is searched in a snapshot of
+ * the warp's chunk on another thread and kept until a block in the warp's
+ * column changes, so warping to a known warp costs a single teleport. Not
+ * every change fires an event (explosions, liquids, pistons, other plugins),
+ * so a kept spot is checked again before it is used. Players that had to
+ * wait for the search go back to the {@link TeleportScheduler}, so they
+ * count against the teleports of the tick they arrive in.
+ *
+ * All methods have to be called on the main thread.
+ */
+public class WarpTeleporter {
+    private static final boolean[] PASSABLE = new boolean[256];
+
+    static {
+        int[] ids = { 0, 6, 27, 28, 31, 32, 37, 38, 39, 40, 50, 55, 59, 63, 66, 68, 69, 70, 72, 75, 76, 77, 78, 83, 106 };
+        for (int id : ids) {
+            PASSABLE[id] = true;
+        }
+    }
+
+    private final Plugin plugin;
+    private final HashMap<Warp, Landing> landings;
+    private final HashMap<String, HashMap<Long, ArrayList<Landing>>> columns;
+    private TeleportScheduler scheduler;
+
+    public WarpTeleporter(Plugin plugin) {
+        this.plugin = plugin;
+        landings = new HashMap<Warp, Landing>();
+        columns = new HashMap<String, HashMap<Long, ArrayList<Landing>>>();
+    }
+
+    void setScheduler(TeleportScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Teleports the player to the warp and sends the welcome message. If the
+     * landing spot isn't known yet, the player is handed back to the
+     * scheduler once it is.
+     */
+    public void teleport(Warp warp, Player player) {
+        Location location = warp.getSharedLocation(plugin.getServer());
+        if (location == null) {
+            player.sendMessage(ChatColor.RED + "World " + warp.world + " doesn't exist.");
+            return;
+        }
+        Landing landing = landings.get(warp);
+        if (landing != null && landing.location != null) {
+            if (isFree(landing.location)) {
+                arrive(warp, player, landing.location);
+                return;
+            }
+            forget(warp);
+            landing = null;
+        }
+        if (landing == null) {
+            landing = findLanding(warp, location);
+        }
+        landing.waiting.add(player);
+    }
+
+    /**
+     * Starts searching the landing spot of the warp unless it is already
+     * known or searched, so later teleports don't have to wait for it.
+     */
+    public void prepare(Warp warp) {
+        if (landings.containsKey(warp)) {
+            return;
+        }
+        Location location = warp.getSharedLocation(plugin.getServer());
+        if (location != null) {
+            findLanding(warp, location);
+        }
+    }
+
+    private Landing findLanding(final Warp warp, Location location) {
+        World world = location.getWorld();
+        final int blockX = location.getBlockX();
+        final int blockZ = location.getBlockZ();
+        if (!world.isChunkLoaded(blockX >> 4, blockZ >> 4)) {
+            world.loadChunk(blockX >> 4, blockZ >> 4);
+        }
+        final ChunkSnapshot snapshot = world.getChunkAt(blockX >> 4, blockZ >> 4).getChunkSnapshot();
+        final int maxHeight = world.getMaxHeight();
+        final Location target = location.clone();
+        final Landing pending = track(warp, world.getName(), blockX, blockZ);
+
+        plugin.getServer().getScheduler().scheduleAsyncDelayedTask(plugin, new Runnable() {
+            @Override
+            public void run() {
+                final int y = findLandingY(snapshot, blockX & 15, warp.y, blockZ & 15, maxHeight);
+                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new Runnable() {
+                    @Override
+                    public void run() {
+                        target.setY(y);
+                        if (landings.get(warp) == pending) {
+                            if (pending.stale) {
+                                // a block changed during the search, the next teleport searches again
+                                landings.remove(warp);
+                            } else {
+                                pending.location = target;
+                            }
+                        }
+                        if (!pending.waiting.isEmpty()) {
+                            scheduler.resubmit(warp, pending.waiting);
+                            pending.waiting.clear();
+                        }
+                    }
+                });
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Forgets the landing spots of all warps in the column of the block.
+     */
+    public void blockChanged(Block block) {
+        HashMap<Long, ArrayList<Landing>> worldColumns = columns.get(block.getWorld().getName());
+        if (worldColumns == null) {
+            return;
+        }
+        ArrayList<Landing> column = worldColumns.remove(columnKey(block.getX(), block.getZ()));
+        if (column == null) {
+            return;
+        }
+        for (Landing landing : column) {
+            if (landings.get(landing.warp) != landing) {
+                continue;
+            }
+            if (landing.location == null) {
+                // still searched, kept so the players waiting for it can be cancelled
+                landing.stale = true;
+            } else {
+                landings.remove(landing.warp);
+            }
+        }
+        if (worldColumns.isEmpty()) {
+            columns.remove(block.getWorld().getName());
+        }
+    }
+
+    /**
+     * Forgets the landing spot of a deleted warp.
+     *
+     * @return the players that were waiting for it
+     */
+    public List<Player> cancel(Warp warp) {
+        Landing landing = landings.get(warp);
+        if (landing == null || landing.waiting.isEmpty()) {
+            forget(warp);
+            return Collections.emptyList();
+        }
+        List<Player> waiting = new ArrayList<Player>(landing.waiting);
+        landing.waiting.clear();
+        forget(warp);
+        return waiting;
+    }
+
+    public void forget(Warp warp) {
+        Landing landing = landings.remove(warp);
+        if (landing != null) {
+            untrack(landing);
+        }
+    }
+
+    public void clear() {
+        landings.clear();
+        columns.clear();
+    }
+
+    private void arrive(Warp warp, Player player, Location location) {
+        player.teleport(location);
+        player.sendMessage(ChatColor.AQUA + warp.welcomeMessage);
+    }
+
+    private Landing track(Warp warp, String world, int blockX, int blockZ) {
+        forget(warp);
+        Landing landing = new Landing(warp, world, columnKey(blockX, blockZ));
+        landings.put(warp, landing);
+        HashMap<Long, ArrayList<Landing>> worldColumns = columns.get(world);
+        if (worldColumns == null) {
+            worldColumns = new HashMap<Long, ArrayList<Landing>>();
+            columns.put(world, worldColumns);
+        }
+        ArrayList<Landing> column = worldColumns.get(landing.column);
+        if (column == null) {
+            column = new ArrayList<Landing>(1);
+            worldColumns.put(landing.column, column);
+        }
+        column.add(landing);
+        return landing;
+    }
+
+    private void untrack(Landing landing) {
+        HashMap<Long, ArrayList<Landing>> worldColumns = columns.get(landing.world);
+        if (worldColumns == null) {
+            return;
+        }
+        ArrayList<Landing> column = worldColumns.get(landing.column);
+        if (column != null && column.remove(landing) && column.isEmpty()) {
+            worldColumns.remove(landing.column);
+            if (worldColumns.isEmpty()) {
+                columns.remove(landing.world);
+            }
+        }
+    }
+
+    /**
+     * The lowest height at or above the given one where the blocks at the
+     * feet and the head of the player are both passable. Falls back to the
+     * given height if the column is blocked up to the top of the world.
+     */
+    static int findLandingY(ChunkSnapshot snapshot, int x, int y, int z, int maxHeight) {
+        for (int feet = Math.max(y, 0); feet < maxHeight; feet++) {
+            if (!isPassable(snapshot, x, feet, z)) {
+                continue;
+            }
+            if (feet + 1 >= maxHeight || isPassable(snapshot, x, feet + 1, z)) {
+                return feet;
+            }
+            // the head block is solid, so the next candidate starts above it
+            feet++;
+        }
+        return y;
+    }
+
+    /**
+     * Whether the feet and head blocks at the location are still passable.
+     */
+    private static boolean isFree(Location location) {
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        if (y < 0 || y >= world.getMaxHeight()) {
+            return false;
+        }
+        return isPassable(world.getBlockTypeIdAt(x, y, z))
+                && (y + 1 >= world.getMaxHeight() || isPassable(world.getBlockTypeIdAt(x, y + 1, z)));
+    }
+
+    private static boolean isPassable(ChunkSnapshot snapshot, int x, int y, int z) {
+        return isPassable(snapshot.getBlockTypeId(x, y, z));
+    }
+
+    private static boolean isPassable(int id) {
+        return id >= 0 && id < PASSABLE.length && PASSABLE[id];
+    }
+
+    private static long columnKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xffffffffL);
+    }
+
+    private static class Landing {
+        private final Warp warp;
+        private final String world;
+        private final long column;
+        private Location location;
+        private boolean stale;
+        private final ArrayList<Player> waiting = new ArrayList<Player>(1);
+
+        private Landing(Warp warp, String world, long column) {
+            this.warp = warp;
+            this.world = world;
+            this.column = column;
+        }
+    }
+}
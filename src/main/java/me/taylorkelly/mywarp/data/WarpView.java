@@ -0,0 +1,44 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The warps one player can see in list order, optionally only those of a
+ * single creator. Pages are cut out of the materialized list, so any page
+ * and the page count cost the same no matter how deep the page is.
+ *
+ * A view belongs to a version of the warp list and to the player's
+ * {@link WarpAccess}, it has to be built again once the warps changed or
+ * the access was resolved again.
+ */
+class WarpView {
+    private final int version;
+    private final String creator;
+    private final WarpAccess access;
+    private final List<Warp> warps;
+
+    WarpView(int version, String creator, WarpAccess access, List<Warp> warps) {
+        this.version = version;
+        this.creator = creator;
+        this.access = access;
+        this.warps = warps;
+    }
+
+    boolean isCurrent(int version, String creator, WarpAccess access) {
+        if (this.version != version || this.access != access) {
+            return false;
+        }
+        return this.creator == null ? creator == null : this.creator.equals(creator);
+    }
+
+    int size() {
+        return warps.size();
+    }
+
+    ArrayList<Warp> getPage(int start, int size) {
+        int from = Math.min(Math.max(start, 0), warps.size());
+        int to = Math.min(from + size, warps.size());
+        return new ArrayList<Warp>(warps.subList(from, to));
+    }
+}
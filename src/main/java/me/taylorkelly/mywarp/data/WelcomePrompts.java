@@ -0,0 +1,68 @@
+package me.taylorkelly.mywarp.data;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The players asked to type a welcome message and the warp it is for. The
+ * answer arrives on a chat thread, so the prompts may be taken from any
+ * thread. A prompt is dropped once it is answered, the player quits or it
+ * wasn't answered in time.
+ */
+public class WelcomePrompts {
+    private final ConcurrentHashMap<String, Prompt> prompts;
+
+    public WelcomePrompts() {
+        prompts = new ConcurrentHashMap<String, Prompt>();
+    }
+
+    /**
+     * Waits for the player to type the welcome message of the warp.
+     *
+     * @param timeout
+     *            seconds until the prompt expires
+     */
+    public void await(String player, Warp warp, int timeout) {
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+        prompts.put(player, new Prompt(warp, now + timeout * 1000L));
+    }
+
+    /**
+     * Removes the prompt of the player, only one thread gets the warp if
+     * several take it at the same time.
+     *
+     * @return the warp the player was asked for, or null if there is no
+     *         prompt or it expired
+     */
+    public Warp take(String player) {
+        Prompt prompt = prompts.remove(player);
+        if (prompt == null || prompt.expires < System.currentTimeMillis()) {
+            return null;
+        }
+        return prompt.warp;
+    }
+
+    public void cancel(String player) {
+        prompts.remove(player);
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Prompt> it = prompts.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expires < now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static class Prompt {
+        private final Warp warp;
+        private final long expires;
+
+        private Prompt(Warp warp, long expires) {
+            this.warp = warp;
+            this.expires = expires;
+        }
+    }
+}
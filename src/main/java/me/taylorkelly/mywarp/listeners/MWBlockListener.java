@@ -2,36 +2,68 @@ package me.taylorkelly.mywarp.listeners;
 
 import me.taylorkelly.mywarp.MyWarp;
 import me.taylorkelly.mywarp.data.SignWarp;
+import me.taylorkelly.mywarp.data.WarpList;
+import me.taylorkelly.mywarp.data.WarpTeleporter;
 import me.taylorkelly.mywarp.permissions.WarpPermissions;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.SignChangeEvent;
 
 public class MWBlockListener implements Listener
 {
   private WarpPermissions warpPermissions;
+  private WarpTeleporter teleporter;
+  private WarpList warpList;
 
   public MWBlockListener(MyWarp plugin)
   {
       warpPermissions = MyWarp.getWarpPermissions();
+      teleporter = plugin.getTeleporter();
+      warpList = plugin.getWarpList();
   }
 
-  @EventHandler(priority = EventPriority.MONITOR)
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
   public void onSignChange(SignChangeEvent event)
   {
     Player player = event.getPlayer();
+    String name = SignWarp.getWarpName(event.getLines());
 
-    if (SignWarp.isSignWarp(event))
-      if (warpPermissions.createSignWarp(player)) {
-        player.sendMessage(ChatColor.AQUA + "Successfully created a SignWarp");
-      }
-      else {
-        player.sendMessage(ChatColor.RED + "You do not have permission to create a SignWarp");
-        event.setCancelled(true);
-      }
+    if (name == null) {
+      // the sign might have been a warp sign before
+      warpList.getSigns().remove(event.getBlock());
+    }
+    else if (warpPermissions.createSignWarp(player)) {
+      warpList.getSigns().register(event.getBlock(), name, warpList.getWarp(name));
+      player.sendMessage(ChatColor.AQUA + "Successfully created a SignWarp");
+    }
+    else {
+      player.sendMessage(ChatColor.RED + "You do not have permission to create a SignWarp");
+      event.setCancelled(true);
+      warpList.getSigns().remove(event.getBlock());
+    }
   }
-}
\ No newline at end of file
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockBreak(BlockBreakEvent event)
+  {
+    Block block = event.getBlock();
+    if (block.getType() == Material.SIGN_POST || block.getType() == Material.WALL_SIGN) {
+      warpList.getSigns().remove(block);
+    }
+    teleporter.blockChanged(block);
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onBlockPlace(BlockPlaceEvent event)
+  {
+    teleporter.blockChanged(event.getBlock());
+  }
+}
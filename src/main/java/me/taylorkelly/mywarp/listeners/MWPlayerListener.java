@@ -3,29 +3,36 @@ package me.taylorkelly.mywarp.listeners;
 import me.taylorkelly.mywarp.MyWarp;
 import me.taylorkelly.mywarp.WarpSettings;
 import me.taylorkelly.mywarp.data.SignWarp;
+import me.taylorkelly.mywarp.data.SignRegistry.SignEntry;
+import me.taylorkelly.mywarp.data.Warp;
 import me.taylorkelly.mywarp.data.WarpList;
 import me.taylorkelly.mywarp.permissions.WarpPermissions;
 
+import org.bukkit.ChatColor;
 import org.bukkit.Chunk;
+import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.Sign;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 
 public class MWPlayerListener implements Listener
 {
+	private MyWarp plugin;
 	private WarpList warpList;
 	private WarpPermissions warpPermissions;
 
 	public MWPlayerListener(MyWarp plugin)
 	{
+		this.plugin = plugin;
 		warpList = plugin.getWarpList();
 		warpPermissions = MyWarp.getWarpPermissions();
 	}
@@ -35,19 +42,36 @@ public class MWPlayerListener implements Listener
 	{
 		if (event.getAction().equals(Action.RIGHT_CLICK_BLOCK)) {
 			Block block = event.getClickedBlock();
-			if (((block.getState() instanceof Sign)) && (SignWarp.isSignWarp((Sign)block.getState())) && (warpPermissions.signWarp(event.getPlayer())))
-				SignWarp.warpSign((Sign)block.getState(), this.warpList, event.getPlayer());
+			Material type = block.getType();
+			if (type != Material.SIGN_POST && type != Material.WALL_SIGN) {
+				return;
+			}
+			SignEntry sign = SignWarp.lookup(block, this.warpList);
+			if ((sign != null) && (warpPermissions.signWarp(event.getPlayer()))) {
+				if (!this.warpList.isLoaded()) {
+					event.getPlayer().sendMessage(ChatColor.RED + "Warps are still loading, please try again in a moment.");
+					return;
+				}
+				SignWarp.warpSign(sign, this.warpList, event.getPlayer());
+			}
 		}
 	}
 
 	@EventHandler(priority = EventPriority.MONITOR)
 	public void onPlayerChat(AsyncPlayerChatEvent event)
 	{
-		Player player = event.getPlayer();
-		if (this.warpList.waitingForWelcome(player)) {
-			this.warpList.setWelcomeMessage(player, event.getMessage());
-			this.warpList.notWaiting(player);
+		// runs on a chat thread, the warp is only changed on the main thread
+		final Player player = event.getPlayer();
+		final Warp warp = this.warpList.takeWelcomePrompt(player);
+		if (warp != null) {
+			final String message = event.getMessage();
 			event.setCancelled(true);
+			plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new Runnable() {
+				@Override
+				public void run() {
+					warpList.setWelcomeMessage(player, warp, message);
+				}
+			});
 		}
 	}
 
@@ -61,4 +85,18 @@ public class MWPlayerListener implements Listener
 			world.refreshChunk(x, z);
 		}
 	}
-}
\ No newline at end of file
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		warpList.cancelWelcomePrompt(event.getPlayer().getName());
+		warpList.invalidateAccess(event.getPlayer().getName());
+		warpPermissions.invalidate(event.getPlayer().getName());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		// permissions might be different in the new world
+		warpList.invalidateAccess(event.getPlayer().getName());
+		warpPermissions.invalidate(event.getPlayer().getName());
+	}
+}
@@ -0,0 +1,47 @@
+package me.taylorkelly.mywarp.listeners;
+
+import me.taylorkelly.mywarp.MyWarp;
+import me.taylorkelly.mywarp.data.HotWarpChunks;
+import me.taylorkelly.mywarp.data.Warp;
+import me.taylorkelly.mywarp.data.WarpTeleporter;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+public class MWWorldListener implements Listener
+{
+  private WarpTeleporter teleporter;
+  private HotWarpChunks hotChunks;
+
+  public MWWorldListener(MyWarp plugin)
+  {
+      teleporter = plugin.getTeleporter();
+      hotChunks = plugin.getTeleportScheduler().getHotChunks();
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onWorldLoad(WorldLoadEvent event)
+  {
+    Warp.worldsChanged();
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+  public void onWorldUnload(WorldUnloadEvent event)
+  {
+    Warp.worldsChanged();
+    teleporter.clear();
+  }
+
+  @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+  public void onChunkUnload(ChunkUnloadEvent event)
+  {
+    // keep the chunks of the most visited warps loaded
+    if (hotChunks.isPinned(event.getChunk())) {
+      event.setCancelled(true);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package me.taylorkelly.mywarp.permissions;
+
+import java.util.HashMap;
+
+/**
+ * Remembers the permission decisions of each player for a while, so the
+ * permissions plugin isn't asked again for every command and list entry.
+ *
+ * Decisions expire after the configured time and are dropped when the
+ * player quits, changes worlds or the plugin is reloaded.
+ */
+public class PermissionCache {
+    private final HashMap<String, HashMap<String, Decision>> players = new HashMap<String, HashMap<String, Decision>>();
+    private long hits;
+    private long misses;
+
+    /**
+     * The cached decision for the node, or null if there is none or it
+     * expired. Decisions are only valid for the same default value.
+     */
+    public synchronized Boolean get(String player, String node, boolean defaultPerm) {
+        HashMap<String, Decision> decisions = players.get(player);
+        if (decisions != null) {
+            Decision decision = decisions.get(node);
+            if (decision != null && decision.defaultPerm == defaultPerm
+                    && decision.expires > System.currentTimeMillis()) {
+                hits++;
+                return decision.value;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String player, String node, boolean defaultPerm, boolean value, long ttl) {
+        HashMap<String, Decision> decisions = players.get(player);
+        if (decisions == null) {
+            decisions = new HashMap<String, Decision>();
+            players.put(player, decisions);
+        }
+        decisions.put(node, new Decision(value, defaultPerm, System.currentTimeMillis() + ttl));
+    }
+
+    public synchronized void invalidate(String player) {
+        players.remove(player);
+    }
+
+    public synchronized void invalidateAll() {
+        players.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getPlayerCount() {
+        return players.size();
+    }
+
+    private static class Decision {
+        private final boolean value;
+        private final boolean defaultPerm;
+        private final long expires;
+
+        private Decision(boolean value, boolean defaultPerm, long expires) {
+            this.value = value;
+            this.defaultPerm = defaultPerm;
+            this.expires = expires;
+        }
+    }
+}
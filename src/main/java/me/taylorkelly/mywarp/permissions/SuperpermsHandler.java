@@ -16,9 +16,7 @@ public class SuperpermsHandler implements IPermissionsHandler {
 
 	@Override
 	public int getInteger(final Player player, final String node, final int defaultInt) {
-		if(player.isOp() && WarpSettings.opPermissions) {
-			return 0;
-		}
+		// no integer options, limits come from mywarp.limit.<kind>.N nodes
 		return defaultInt;
 	}
 }
@@ -1,6 +1,5 @@
 package me.taylorkelly.mywarp.permissions;
 
-import me.taylorkelly.mywarp.WarpSettings;
 import net.milkbowl.vault.permission.Permission;
 
 import org.bukkit.entity.Player;
@@ -21,9 +20,7 @@ public class VaultHandler implements IPermissionsHandler {
 
 	@Override
 	public int getInteger(final Player player, final String node, final int defaultInt) {
-		if(player.isOp() && WarpSettings.opPermissions) {
-			return 0;
-		}
+		// no integer options, limits come from mywarp.limit.<kind>.N nodes
 		return defaultInt;
 	}
 }
@@ -0,0 +1,86 @@
+package me.taylorkelly.mywarp.permissions;
+
+import me.taylorkelly.mywarp.WarpSettings;
+
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+/**
+ * The warp limits of a single player. A limit is taken from the highest
+ * granted mywarp.limit.&lt;total|public|private&gt;.N permission, then from
+ * the integer option mywarp.limit.&lt;total|public|private&gt; of the
+ * permissions plugin and otherwise from the config.
+ */
+public class WarpLimits {
+    private static final String PREFIX = "mywarp.limit.";
+
+    private final int total;
+    private final int publicWarps;
+    private final int privateWarps;
+
+    private WarpLimits(int total, int publicWarps, int privateWarps) {
+        this.total = total;
+        this.publicWarps = publicWarps;
+        this.privateWarps = privateWarps;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getPublic() {
+        return publicWarps;
+    }
+
+    public int getPrivate() {
+        return privateWarps;
+    }
+
+    /**
+     * Resolves the limits with a single pass over the player's permissions
+     * instead of checking one node per possible number.
+     */
+    static WarpLimits resolve(Player player, IPermissionsHandler handler) {
+        int total = -1;
+        int publicWarps = -1;
+        int privateWarps = -1;
+        for (PermissionAttachmentInfo info : player.getEffectivePermissions()) {
+            String permission = info.getPermission();
+            if (!info.getValue() || !permission.startsWith(PREFIX)) {
+                continue;
+            }
+            int dot = permission.indexOf('.', PREFIX.length());
+            if (dot < 0) {
+                continue;
+            }
+            int value;
+            try {
+                value = Integer.parseInt(permission.substring(dot + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            String kind = permission.substring(PREFIX.length(), dot);
+            if (kind.equals("total")) {
+                total = Math.max(total, value);
+            } else if (kind.equals("public")) {
+                publicWarps = Math.max(publicWarps, value);
+            } else if (kind.equals("private")) {
+                privateWarps = Math.max(privateWarps, value);
+            }
+        }
+        return new WarpLimits(
+                total >= 0 ? total : getInteger(player, handler, "total", WarpSettings.maxTotal),
+                publicWarps >= 0 ? publicWarps : getInteger(player, handler, "public", WarpSettings.maxPublic),
+                privateWarps >= 0 ? privateWarps : getInteger(player, handler, "private", WarpSettings.maxPrivate));
+    }
+
+    private static int getInteger(Player player, IPermissionsHandler handler, String kind, int defaultInt) {
+        try {
+            int value = handler.getInteger(player, PREFIX + kind, -1);
+            return value >= 0 ? value : defaultInt;
+        } catch (RuntimeException e) {
+            // some plugins fail on options they don't know
+            return defaultInt;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package me.taylorkelly.mywarp.permissions;
 
+import java.util.HashMap;
+
 import me.taylorkelly.mywarp.WarpSettings;
 
 import org.bukkit.entity.Player;
@@ -7,9 +9,56 @@ import org.bukkit.plugin.Plugin;
 
 public class WarpPermissions {
 	private PermissionsHandler permissionsHandler;
+	private PermissionCache cache;
+	private HashMap<String, WarpLimits> limits;
 
 	public WarpPermissions(Plugin plugin) {
 		permissionsHandler = new PermissionsHandler(plugin);
+		cache = new PermissionCache();
+		limits = new HashMap<String, WarpLimits>();
+	}
+
+	private boolean check(Player player, String node, boolean defaultPerm) {
+		if (WarpSettings.permissionCacheTtl <= 0) {
+			return permissionsHandler.hasPermission(player, node, defaultPerm);
+		}
+		Boolean cached = cache.get(player.getName(), node, defaultPerm);
+		if (cached != null) {
+			return cached;
+		}
+		boolean value = permissionsHandler.hasPermission(player, node, defaultPerm);
+		cache.put(player.getName(), node, defaultPerm, value, WarpSettings.permissionCacheTtl * 1000L);
+		return value;
+	}
+
+	/**
+	 * Forgets the cached permissions of the player, e.g. because the player
+	 * left or changed worlds.
+	 */
+	public void invalidate(String player) {
+		cache.invalidate(player);
+		limits.remove(player);
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+		limits.clear();
+	}
+
+	/**
+	 * The warp limits of the player, resolved once per session.
+	 */
+	public WarpLimits getLimits(Player player) {
+		WarpLimits ret = limits.get(player.getName());
+		if (ret == null) {
+			ret = WarpLimits.resolve(player, permissionsHandler);
+			limits.put(player.getName(), ret);
+		}
+		return ret;
+	}
+
+	public PermissionCache getCache() {
+		return cache;
 	}
 	
 	public int integer(Player player, String node, int defaultInt) {
@@ -17,82 +66,82 @@ public class WarpPermissions {
 	}
 
 	public boolean hasPermission(Player player, final String node, boolean defaultPerm) {
-	    return permissionsHandler.hasPermission(player, node, defaultPerm);
+	    return check(player, node, defaultPerm);
 	}
 
     public boolean isAdmin(Player player) {
-        return permissionsHandler.hasPermission(player, "mywarp.admin", player.isOp());
+        return check(player, "mywarp.admin", player.isOp());
     }
 
     public boolean warp(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.warp", true);
+            return check(player, "mywarp.warp.basic.warp", true);
     }
 
     public boolean delete(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.delete", true);
+            return check(player, "mywarp.warp.basic.delete", true);
     }
 
     public boolean list(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.list", true);
+            return check(player, "mywarp.warp.basic.list", true);
     }
 
     public boolean welcome(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.welcome", true);
+            return check(player, "mywarp.warp.basic.welcome", true);
     }
 
     public boolean search(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.search", true);
+            return check(player, "mywarp.warp.basic.search", true);
     }
 
     public boolean give(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.soc.give", true);
+            return check(player, "mywarp.warp.soc.give", true);
     }
 
     public boolean invite(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.soc.invite", true);
+            return check(player, "mywarp.warp.soc.invite", true);
     }
 
     public boolean uninvite(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.soc.uninvite", true);
+            return check(player, "mywarp.warp.soc.uninvite", true);
     }
 
     public boolean canPublic(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.soc.public", true);
+            return check(player, "mywarp.warp.soc.public", true);
     }
 
     public boolean canPrivate(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.soc.private", true);
+            return check(player, "mywarp.warp.soc.private", true);
     }
 
     public boolean signWarp(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.sign.warp", true);
+            return check(player, "mywarp.warp.sign.warp", true);
     }
 
     public boolean privateCreate(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.createprivate", true);
+            return check(player, "mywarp.warp.basic.createprivate", true);
     }
     
     public boolean publicCreate(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.createpublic", true);
+            return check(player, "mywarp.warp.basic.createpublic", true);
     }
     
     public boolean compass(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.basic.compass", true);
+            return check(player, "mywarp.warp.basic.compass", true);
     }
 
     public int maxTotalWarps(Player player) {
-        return WarpSettings.maxTotal;
+        return getLimits(player).getTotal();
     }
 
     public int maxPrivateWarps(Player player) {
-        return WarpSettings.maxPrivate;
+        return getLimits(player).getPrivate();
     }
 
     public int maxPublicWarps(Player player) {
-        return WarpSettings.maxPublic;
+        return getLimits(player).getPublic();
     }
 
     public boolean createSignWarp(Player player) {
-            return permissionsHandler.hasPermission(player, "mywarp.warp.sign.create", true);
+            return check(player, "mywarp.warp.sign.create", true);
     }
 }
\ No newline at end of file
@@ -1,66 +1,85 @@
 package me.taylorkelly.mywarp.sql;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 import me.taylorkelly.mywarp.WarpSettings;
 import me.taylorkelly.mywarp.utils.WarpLogger;
 
 public class ConnectionManager {
-    private static Connection conn;
-        
-    public static Connection initialize() {
+    private static final long KEEP_ALIVE_INTERVAL = 60;
+
+    private static ConnectionPool pool;
+
+    /**
+     * Sets up the connection pool and checks that a connection can be
+     * established.
+     *
+     * @return whether the database can be used
+     */
+    public static synchronized boolean initialize() {
+        closeConnection();
         try {
-        	if(WarpSettings.usemySQL == true) {
-        		Class.forName("com.mysql.jdbc.Driver");
-        		conn = DriverManager.getConnection(WarpSettings.mySQLconn, WarpSettings.mySQLuname, WarpSettings.mySQLpass);
-        		conn.setAutoCommit(false);
-        		return conn;
-        	} else {
-        		Class.forName("org.sqlite.JDBC");
-        		conn = DriverManager.getConnection("jdbc:sqlite:" + WarpSettings.dataDir.getAbsolutePath() + "/warps.db");
-        		conn.setAutoCommit(false);
-        		return conn;
-        	}
+            if (WarpSettings.usemySQL == true) {
+                Class.forName("com.mysql.jdbc.Driver");
+                pool = new ConnectionPool(WarpSettings.mySQLconn, WarpSettings.mySQLuname, WarpSettings.mySQLpass,
+                        WarpSettings.mySQLpoolSize);
+                // MySQL closes connections that are idle for too long
+                pool.startKeepAlive(KEEP_ALIVE_INTERVAL);
+            } else {
+                Class.forName("org.sqlite.JDBC");
+                // SQLite only allows one writer anyway
+                pool = new ConnectionPool("jdbc:sqlite:" + WarpSettings.dataDir.getAbsolutePath() + "/warps.db", null,
+                        null, 1);
+            }
+            releaseConnection(borrowConnection());
+            return true;
         } catch (SQLException ex) {
             WarpLogger.severe("SQL exception on initialize", ex);
         } catch (ClassNotFoundException ex) {
             WarpLogger.severe("You need the SQLite/MySQL library.", ex);
         }
-        return conn;
+        closeConnection();
+        return false;
     }
 
-	public static Connection getConnection() {
-		if(conn == null) conn = initialize();
-		if(WarpSettings.usemySQL) {
-			// We probably dont need to do this for SQLite. 
-			try {
-				if(!conn.isValid(10)) conn = initialize();
-			} catch (SQLException ex) {
-				WarpLogger.severe("Failed to check SQL status", ex);
-			}
-		}
-		return conn;
-	}
+    /**
+     * Borrows a connection from the pool, every borrowed connection has to be
+     * given back with {@link #releaseConnection(PooledConnection)} or
+     * {@link #invalidateConnection(PooledConnection)}.
+     */
+    public static PooledConnection borrowConnection() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            throw new SQLException("Database connection is not initialized");
+        }
+        return current.borrow();
+    }
 
-    public static void closeConnection() {
-		if(conn != null) {
-			try {
-				if(WarpSettings.usemySQL){
-					if(conn.isValid(10)) {
-						conn.close();
-					}
-					conn = null;
-				} else {
-					conn.close();
-					conn = null;
-				}
-			} catch (SQLException ex) {
-				WarpLogger.severe("Error on Connection close", ex);
-			}
-		}
+    public static void releaseConnection(PooledConnection conn) {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.release(conn);
+        } else {
+            conn.close();
+        }
     }
 
+    /**
+     * Gives back a connection that failed and might be broken.
+     */
+    public static void invalidateConnection(PooledConnection conn) {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.invalidate(conn);
+        } else {
+            conn.close();
+        }
+    }
 
-}
\ No newline at end of file
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package me.taylorkelly.mywarp.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.taylorkelly.mywarp.utils.WarpLogger;
+
+/**
+ * A small pool of database connections.
+ *
+ * Connections are not checked when they are borrowed. Instead, if keep-alive
+ * is enabled, a background thread validates the idle connections
+ * periodically, which also keeps them from timing out on the server.
+ */
+public class ConnectionPool {
+    private static final int BORROW_TIMEOUT = 10;
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final LinkedBlockingQueue<PooledConnection> idle;
+    private final AtomicInteger open;
+    private ScheduledExecutorService keepAlive;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        idle = new LinkedBlockingQueue<PooledConnection>();
+        open = new AtomicInteger();
+    }
+
+    /**
+     * Starts validating the idle connections every given number of seconds.
+     */
+    public void startKeepAlive(long interval) {
+        keepAlive = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MyWarp Connection Keep-Alive");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        keepAlive.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                validateIdle();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        PooledConnection conn = idle.poll();
+        if (conn != null) {
+            return conn;
+        }
+        if (open.incrementAndGet() <= maxSize) {
+            try {
+                return connect();
+            } catch (SQLException ex) {
+                open.decrementAndGet();
+                throw ex;
+            }
+        }
+        open.decrementAndGet();
+        try {
+            conn = idle.poll(BORROW_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (conn == null) {
+            throw new SQLException("No database connection available");
+        }
+        return conn;
+    }
+
+    public void release(PooledConnection conn) {
+        if (closed) {
+            invalidate(conn);
+        } else {
+            idle.add(conn);
+        }
+    }
+
+    /**
+     * Closes a borrowed connection that might be broken instead of returning
+     * it to the pool.
+     */
+    public void invalidate(PooledConnection conn) {
+        conn.close();
+        open.decrementAndGet();
+    }
+
+    private PooledConnection connect() throws SQLException {
+        Connection conn;
+        if (user == null) {
+            conn = DriverManager.getConnection(url);
+        } else {
+            conn = DriverManager.getConnection(url, user, password);
+        }
+        conn.setAutoCommit(false);
+        return new PooledConnection(conn);
+    }
+
+    private void validateIdle() {
+        // only look at each currently idle connection once, connections
+        // returned meanwhile have just been used
+        for (int i = idle.size(); i > 0; i--) {
+            PooledConnection conn = idle.poll();
+            if (conn == null) {
+                break;
+            }
+            if (conn.isValid(VALIDATION_TIMEOUT)) {
+                release(conn);
+            } else {
+                WarpLogger.warning("Dropping invalid database connection");
+                invalidate(conn);
+            }
+        }
+    }
+
+    /**
+     * Closes all idle connections. Borrowed connections are closed once they
+     * are released.
+     */
+    public void close() {
+        closed = true;
+        if (keepAlive != null) {
+            keepAlive.shutdownNow();
+        }
+        PooledConnection conn;
+        while ((conn = idle.poll()) != null) {
+            invalidate(conn);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package me.taylorkelly.mywarp.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import me.taylorkelly.mywarp.utils.WarpLogger;
+
+/**
+ * A connection of the {@link ConnectionPool} that keeps its prepared
+ * statements around, so frequently used statements are only prepared once.
+ *
+ * Statements returned by {@link #prepareStatement(String)} belong to the
+ * connection and must not be closed by the caller.
+ */
+public class PooledConnection {
+    private static final int MAX_CACHED_STATEMENTS = 32;
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+        statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > MAX_CACHED_STATEMENTS) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql);
+            statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+            ps.clearBatch();
+        }
+        return ps;
+    }
+
+    boolean isValid(int timeout) {
+        try {
+            return connection.isValid(timeout);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    void close() {
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            WarpLogger.severe("Error on Connection close", ex);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            // the connection is most likely gone already
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package me.taylorkelly.mywarp.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import me.taylorkelly.mywarp.data.Warp;
+
+/**
+ * A pending change to a single row of the warp table. The column values are
+ * copied when the change is created, so the writer thread never reads a
+ * warp that is modified at the same time.
+ */
+class WarpChange {
+    enum Kind {
+        INSERT, UPDATE, DELETE
+    }
+
+    enum Column {
+        NAME("name"), CREATOR("creator"), WORLD("world"), X("x"), Y("y"), Z("z"), YAW("yaw"), PITCH("pitch"),
+        PUBLIC_ALL("publicAll"), PERMISSIONS("permissions"), WELCOME_MESSAGE("welcomeMessage");
+
+        private final String name;
+
+        private Column(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final int id;
+    private Kind kind;
+    private boolean deleteFirst;
+    private final EnumMap<Column, Object> values;
+
+    private WarpChange(int id, Kind kind) {
+        this.id = id;
+        this.kind = kind;
+        values = new EnumMap<Column, Object>(Column.class);
+    }
+
+    static WarpChange insert(Warp warp) {
+        WarpChange change = new WarpChange(warp.index, Kind.INSERT);
+        change.values.put(Column.NAME, warp.name);
+        change.values.put(Column.CREATOR, warp.creator);
+        change.values.put(Column.WORLD, warp.world);
+        change.values.put(Column.X, warp.x);
+        change.values.put(Column.Y, warp.y);
+        change.values.put(Column.Z, warp.z);
+        change.values.put(Column.YAW, warp.yaw);
+        change.values.put(Column.PITCH, warp.pitch);
+        change.values.put(Column.PUBLIC_ALL, warp.publicAll);
+        change.values.put(Column.PERMISSIONS, warp.permissionsString());
+        change.values.put(Column.WELCOME_MESSAGE, warp.welcomeMessage);
+        return change;
+    }
+
+    static WarpChange update(Warp warp, Set<Warp.Field> fields) {
+        WarpChange change = new WarpChange(warp.index, Kind.UPDATE);
+        for (Warp.Field field : fields) {
+            switch (field) {
+            case CREATOR:
+                change.values.put(Column.CREATOR, warp.creator);
+                break;
+            case PUBLIC_ALL:
+                change.values.put(Column.PUBLIC_ALL, warp.publicAll);
+                break;
+            case PERMISSIONS:
+                change.values.put(Column.PERMISSIONS, warp.permissionsString());
+                break;
+            case WELCOME_MESSAGE:
+                change.values.put(Column.WELCOME_MESSAGE, warp.welcomeMessage);
+                break;
+            }
+        }
+        return change;
+    }
+
+    static WarpChange delete(Warp warp) {
+        return new WarpChange(warp.index, Kind.DELETE);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Whether the row has to be deleted before this change is applied, which
+     * happens if a deletion was followed by an insert of the same id.
+     */
+    boolean isDeleteFirst() {
+        return deleteFirst;
+    }
+
+    Map<Column, Object> getValues() {
+        return values;
+    }
+
+    /**
+     * Folds a later change of the same row into this one.
+     *
+     * @return false if both changes cancel each other out, i.e. a row that
+     *         was inserted and deleted again before anything was written
+     */
+    boolean merge(WarpChange later) {
+        switch (later.kind) {
+        case DELETE:
+            if (kind == Kind.INSERT && !deleteFirst) {
+                return false;
+            }
+            kind = Kind.DELETE;
+            deleteFirst = false;
+            values.clear();
+            break;
+        case INSERT:
+            deleteFirst = kind != Kind.INSERT || deleteFirst;
+            kind = Kind.INSERT;
+            values.clear();
+            values.putAll(later.values);
+            break;
+        case UPDATE:
+            if (kind == Kind.DELETE) {
+                // the row is gone, there is nothing left to update
+                break;
+            }
+            values.putAll(later.values);
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Binds the values of this change in column order, starting at the given
+     * parameter index.
+     *
+     * @return the next free parameter index
+     */
+    int bind(PreparedStatement ps, int parameterIndex) throws SQLException {
+        for (Object value : values.values()) {
+            if (value instanceof Integer) {
+                ps.setInt(parameterIndex, (Integer) value);
+            } else if (value instanceof Double) {
+                ps.setDouble(parameterIndex, (Double) value);
+            } else if (value instanceof Boolean) {
+                ps.setBoolean(parameterIndex, (Boolean) value);
+            } else {
+                ps.setString(parameterIndex, (String) value);
+            }
+            parameterIndex++;
+        }
+        return parameterIndex;
+    }
+}
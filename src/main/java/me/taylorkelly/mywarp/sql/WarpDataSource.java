@@ -3,12 +3,20 @@ package me.taylorkelly.mywarp.sql;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import me.taylorkelly.mywarp.WarpSettings;
 import me.taylorkelly.mywarp.data.Warp;
@@ -30,63 +38,102 @@ public class WarpDataSource {
         + "`permissions` text,"
         + "`welcomeMessage` varchar(100) NOT NULL DEFAULT ''"
         + ");";
+    private final static String LOAD_WARPS = "SELECT id, name, creator, world, x, y, z, yaw, pitch, publicAll, permissions, welcomeMessage FROM warpTable";
+    private final static int DECODE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static WarpWriter writer;
 
     public static void initialize() {
+        if (writer == null) {
+            writer = new WarpWriter();
+        }
         if (!tableExists()) {
             createTable();
         }
         dbTblCheck();
+        // warps imported while creating the table have to be there before
+        // they are loaded
+        writer.flush();
+        writer.start();
     }
 
     public static HashMap<String, Warp> getMap() {
         HashMap<String, Warp> ret = new HashMap<String, Warp>();
+        ExecutorService decoder = Executors.newFixedThreadPool(DECODE_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MyWarp Loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Future<List<Warp>>> batches = new ArrayList<Future<List<Warp>>>();
+        PooledConnection conn = null;
         Statement statement = null;
         ResultSet set = null;
         try {
-            Connection conn = ConnectionManager.getConnection();
+            conn = ConnectionManager.borrowConnection();
+
+            statement = conn.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL only streams the rows instead of reading the whole table
+            // into memory if the fetch size is Integer.MIN_VALUE
+            statement.setFetchSize(WarpSettings.usemySQL ? Integer.MIN_VALUE : WarpSettings.loadFetchSize);
+            set = statement.executeQuery(LOAD_WARPS);
 
-            statement = conn.createStatement();
-            set = statement.executeQuery("SELECT * FROM warpTable");
+            // rows are decoded into warps while the next ones are still read
+            int batchSize = Math.max(1, WarpSettings.loadFetchSize);
+            List<WarpRow> rows = new ArrayList<WarpRow>(batchSize);
             int size = 0;
             while (set.next()) {
                 size++;
-                int index = set.getInt("id");
-                String name = set.getString("name");
-                String creator = set.getString("creator");
-                String world = set.getString("world");
-                double x = set.getDouble("x");
-                int y = set.getInt("y");
-                double z = set.getDouble("z");
-                int yaw = set.getInt("yaw");
-                int pitch = set.getInt("pitch");
-                boolean publicAll = set.getBoolean("publicAll");
-                String permissions = set.getString("permissions");
-                String welcomeMessage = set.getString("welcomeMessage");
-                Warp warp = new Warp(index, name, creator, world, x, y, z, yaw, pitch, publicAll, permissions, welcomeMessage);
-                ret.put(name, warp);
+                rows.add(new WarpRow(set));
+                if (rows.size() == batchSize) {
+                    batches.add(decoder.submit(new DecodeTask(rows)));
+                    rows = new ArrayList<WarpRow>(batchSize);
+                }
+            }
+            if (!rows.isEmpty()) {
+                batches.add(decoder.submit(new DecodeTask(rows)));
+            }
+            // the batches are merged in the order they were read, so
+            // duplicate names resolve the same way as before
+            for (Future<List<Warp>> batch : batches) {
+                for (Warp warp : batch.get()) {
+                    ret.put(warp.name, warp);
+                }
             }
             WarpLogger.info("" + size + " warps loaded");
         } catch (SQLException ex) {
             WarpLogger.severe("Warp Load Exception");
+        } catch (InterruptedException ex) {
+            WarpLogger.severe("Warp Load interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            WarpLogger.severe("Warp Load Exception (while decoding)", ex);
         } finally {
+            decoder.shutdownNow();
             try {
-                if (statement != null)
-                    statement.close();
                 if (set != null)
                     set.close();
+                if (statement != null)
+                    statement.close();
             } catch (SQLException ex) {
             	WarpLogger.severe("Warp Load Exception (on close)");
             }
+            if (conn != null) {
+                ConnectionManager.releaseConnection(conn);
+            }
         }
         return ret;
     }
 
     private static boolean tableExists() {
+        PooledConnection conn = null;
         ResultSet rs = null;
         try {
-            Connection conn = ConnectionManager.getConnection();
+            conn = ConnectionManager.borrowConnection();
 
-            DatabaseMetaData dbm = conn.getMetaData();
+            DatabaseMetaData dbm = conn.getConnection().getMetaData();
             rs = dbm.getTables(null, null, "warpTable", null);
             if (!rs.next())
                 return false;
@@ -101,14 +148,19 @@ public class WarpDataSource {
             } catch (SQLException ex) {
                 WarpLogger.severe("Table Check SQL Exception (on closing)");
             }
+            if (conn != null) {
+                ConnectionManager.releaseConnection(conn);
+            }
         }
     }
 
     private static void createTable() {
+    	PooledConnection pooled = null;
     	Statement st = null;
     	try {
     		WarpLogger.info("Creating Database...");
-    		Connection conn = ConnectionManager.getConnection();
+    		pooled = ConnectionManager.borrowConnection();
+    		Connection conn = pooled.getConnection();
     		st = conn.createStatement();
     		st.executeUpdate(WARP_TABLE);
     		conn.commit();
@@ -181,177 +233,44 @@ public class WarpDataSource {
     		} catch (SQLException e) {
     			WarpLogger.severe("Could not create the table (on close)");
     		}
+    		if (pooled != null) {
+    			ConnectionManager.releaseConnection(pooled);
+    		}
     	}
     }
 
     public static void addWarp(Warp warp) {
-        PreparedStatement ps = null;
-        try {
-            Connection conn = ConnectionManager.getConnection();
-
-            ps = conn
-                    .prepareStatement("INSERT INTO warpTable (id, name, creator, world, x, y, z, yaw, pitch, publicAll, permissions, welcomeMessage) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)");
-            ps.setInt(1, warp.index);
-            ps.setString(2, warp.name);
-            ps.setString(3, warp.creator);
-            ps.setString(4, warp.world);
-            ps.setDouble(5, warp.x);
-            ps.setInt(6, warp.y);
-            ps.setDouble(7, warp.z);
-            ps.setInt(8, warp.yaw);
-            ps.setInt(9, warp.pitch);
-            ps.setBoolean(10, warp.publicAll);
-            ps.setString(11, warp.permissionsString());
-            ps.setString(12, warp.welcomeMessage);
-            ps.executeUpdate();
-            conn.commit();
-        } catch (SQLException ex) {
-            WarpLogger.severe("Warp Insert Exception", ex);
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
-                }
-            } catch (SQLException ex) {
-                WarpLogger.severe("Warp Insert Exception (on close)", ex);
-            }
-        }
+        writer.enqueue(WarpChange.insert(warp));
     }
 
     public static void deleteWarp(Warp warp) {
-        PreparedStatement ps = null;
-        ResultSet set = null;
-        try {
-            Connection conn = ConnectionManager.getConnection();
-
-            ps = conn.prepareStatement("DELETE FROM warpTable WHERE id = ?");
-            ps.setInt(1, warp.index);
-            ps.executeUpdate();
-            conn.commit();
-        } catch (SQLException ex) {
-            WarpLogger.severe("Warp Delete Exception", ex);
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
-                }
-                if (set != null) {
-                    set.close();
-                }
-            } catch (SQLException ex) {
-                WarpLogger.severe("Warp Delete Exception (on close)", ex);
-            }
-        }
+        writer.enqueue(WarpChange.delete(warp));
     }
 
-    public static void publicizeWarp(Warp warp, boolean publicAll) {
-        PreparedStatement ps = null;
-        ResultSet set = null;
-        try {
-            Connection conn = ConnectionManager.getConnection();
-
-            ps = conn.prepareStatement("UPDATE warpTable SET publicAll = ? WHERE id = ?");
-            ps.setBoolean(1, publicAll);
-            ps.setInt(2, warp.index);
-            ps.executeUpdate();
-            conn.commit();
-        } catch (SQLException ex) {
-            WarpLogger.severe("Warp Publicize Exception", ex);
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
-                }
-                if (set != null) {
-                    set.close();
-                }
-            } catch (SQLException ex) {
-                WarpLogger.severe("Warp Publicize Exception (on close)", ex);
-            }
-        }
-    }
-
-    public static void updatePermissions(Warp warp) {
-        PreparedStatement ps = null;
-        ResultSet set = null;
-        try {
-            Connection conn = ConnectionManager.getConnection();
-
-            ps = conn.prepareStatement("UPDATE warpTable SET permissions = ? WHERE id = ?");
-            ps.setString(1, warp.permissionsString());
-            ps.setInt(2, warp.index);
-            ps.executeUpdate();
-            conn.commit();
-        } catch (SQLException ex) {
-            WarpLogger.severe("Warp Permissions Exception", ex);
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
-                }
-                if (set != null) {
-                    set.close();
-                }
-            } catch (SQLException ex) {
-                WarpLogger.severe("Warp Permissions Exception (on close)", ex);
-            }
+    /**
+     * Writes the values of the warp that changed since it was last written.
+     * Nothing is written if the warp is unchanged, and changes that reach the
+     * writer within the same delay end up in one UPDATE per warp.
+     */
+    public static void updateWarp(Warp warp) {
+        Set<Warp.Field> fields = warp.takeDirtyFields();
+        if (!fields.isEmpty()) {
+            writer.enqueue(WarpChange.update(warp, fields));
         }
     }
 
-    public static void updateCreator(Warp warp) {
-        PreparedStatement ps = null;
-        ResultSet set = null;
-        try {
-            Connection conn = ConnectionManager.getConnection();
-
-            ps = conn.prepareStatement("UPDATE warpTable SET creator = ? WHERE id = ?");
-            ps.setString(1, warp.creator);
-            ps.setInt(2, warp.index);
-            ps.executeUpdate();
-            conn.commit();
-
-        } catch (SQLException ex) {
-            WarpLogger.severe("Warp Creator Exception", ex);
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
-                }
-                if (set != null) {
-                    set.close();
-                }
-            } catch (SQLException ex) {
-                WarpLogger.severe("Warp Creator Exception (on close)", ex);
-            }
+    /**
+     * Stops the background writer after all pending changes are written.
+     */
+    public static void shutdown() {
+        if (writer != null) {
+            writer.stop();
+            writer = null;
         }
     }
 
-    public static void updateWelcomeMessage(Warp warp) {
-        PreparedStatement ps = null;
-        ResultSet set = null;
-        try {
-            Connection conn = ConnectionManager.getConnection();
-
-            ps = conn.prepareStatement("UPDATE warpTable SET welcomeMessage = ? WHERE id = ?");
-            ps.setString(1, warp.welcomeMessage);
-            ps.setInt(2, warp.index);
-            ps.executeUpdate();
-            conn.commit();
-
-        } catch (SQLException ex) {
-            WarpLogger.severe("Warp Creator Exception", ex);
-        } finally {
-            try {
-                if (ps != null) {
-                    ps.close();
-                }
-                if (set != null) {
-                    set.close();
-                }
-            } catch (SQLException ex) {
-                WarpLogger.severe("Warp Creator Exception (on close)", ex);
-            }
-        }
+    public static WarpWriter getWriter() {
+        return writer;
     }
     
     public static void dbTblCheck() {
@@ -366,8 +285,15 @@ public class WarpDataSource {
 
     public static void updateDB(String test, String sqlite, String mysql) {
     	// Allowing for differences in the SQL statements for mysql/sqlite.
+    	PooledConnection pooled;
+    	try {
+    		pooled = ConnectionManager.borrowConnection();
+    	} catch (SQLException ex) {
+    		WarpLogger.severe("Failed to update the database to the new version - ", ex);
+    		return;
+    	}
+    	Connection conn = pooled.getConnection();
     	try {
-    		Connection conn = ConnectionManager.getConnection();
     		Statement statement = conn.createStatement();
     		statement.executeQuery(test);
     		statement.close();
@@ -382,7 +308,6 @@ public class WarpDataSource {
     				query = sqlite.split(";");
     			}
 
-    			Connection conn = ConnectionManager.getConnection();
     			Statement sqlst = conn.createStatement();
     			for (String qry : query) {
     				sqlst.executeUpdate(qry);
@@ -393,15 +318,19 @@ public class WarpDataSource {
     			WarpLogger.severe("Failed to update the database to the new version - ", exc);
     			ex.printStackTrace();
     		}	
+    	} finally {
+    		ConnectionManager.releaseConnection(pooled);
     	}
     }
 
     public static void updateFieldType(String field, String type) {
+    	PooledConnection pooled = null;
     	try {
     		if (!WarpSettings.usemySQL) return;
     		WarpLogger.info("Updating database");
     		
-    		Connection conn = ConnectionManager.getConnection();
+    		pooled = ConnectionManager.borrowConnection();
+    		Connection conn = pooled.getConnection();
     		DatabaseMetaData meta = conn.getMetaData();
 
     		ResultSet colRS = null;
@@ -423,7 +352,63 @@ public class WarpDataSource {
     	} catch(SQLException ex) {
     		WarpLogger.severe("Failed to update the database to the new version - ", ex);
     		ex.printStackTrace();
+    	} finally {
+    		if (pooled != null) {
+    			ConnectionManager.releaseConnection(pooled);
+    		}
     	}
     }
 
+    /**
+     * The raw columns of one warp, read by position in the order of
+     * LOAD_WARPS.
+     */
+    private static class WarpRow {
+        private final int index;
+        private final String name;
+        private final String creator;
+        private final String world;
+        private final double x;
+        private final int y;
+        private final double z;
+        private final int yaw;
+        private final int pitch;
+        private final boolean publicAll;
+        private final String permissions;
+        private final String welcomeMessage;
+
+        private WarpRow(ResultSet set) throws SQLException {
+            index = set.getInt(1);
+            name = set.getString(2);
+            creator = set.getString(3);
+            world = set.getString(4);
+            x = set.getDouble(5);
+            y = set.getInt(6);
+            z = set.getDouble(7);
+            yaw = set.getInt(8);
+            pitch = set.getInt(9);
+            publicAll = set.getBoolean(10);
+            permissions = set.getString(11);
+            welcomeMessage = set.getString(12);
+        }
+    }
+
+    private static class DecodeTask implements Callable<List<Warp>> {
+        private final List<WarpRow> rows;
+
+        private DecodeTask(List<WarpRow> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public List<Warp> call() {
+            List<Warp> ret = new ArrayList<Warp>(rows.size());
+            for (WarpRow row : rows) {
+                ret.add(new Warp(row.index, row.name, row.creator, row.world, row.x, row.y, row.z, row.yaw, row.pitch,
+                        row.publicAll, row.permissions == null ? "" : row.permissions,
+                        row.welcomeMessage == null ? "" : row.welcomeMessage));
+            }
+            return ret;
+        }
+    }
 }
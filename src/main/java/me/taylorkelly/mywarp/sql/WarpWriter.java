@@ -0,0 +1,358 @@
+package me.taylorkelly.mywarp.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import me.taylorkelly.mywarp.WarpSettings;
+import me.taylorkelly.mywarp.utils.WarpLogger;
+
+/**
+ * Writes warp changes to the database on its own thread, so commands never
+ * wait for the database.
+ *
+ * Changes that arrive while the writer is busy (or during the configured
+ * write delay) are merged per warp id and written as JDBC batches in one
+ * transaction. If a batch fails, its changes are written one by one: a
+ * change the database refuses (e.g. a too long value) is logged and dropped,
+ * so it can't hold back the others. If the database can't be reached, the
+ * changes are kept and written again after a growing delay, until the
+ * database is back or the writer stops.
+ */
+public class WarpWriter implements Runnable {
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 60000;
+    private static final int MAX_CHANGE_ATTEMPTS = 5;
+    private static final int STOP_ATTEMPTS = 3;
+
+    private final LinkedBlockingQueue<WarpChange> queue;
+    private final LinkedHashMap<Integer, WarpChange> pending;
+    private final HashMap<Integer, Failure> failures;
+    private final Object flushLock;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile int failedAttempts;
+    private volatile int pendingCount;
+
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private volatile long writtenChanges;
+
+    public WarpWriter() {
+        queue = new LinkedBlockingQueue<WarpChange>();
+        pending = new LinkedHashMap<Integer, WarpChange>();
+        failures = new HashMap<Integer, Failure>();
+        flushLock = new Object();
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "MyWarp Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the writer thread and writes everything that is still queued on
+     * the calling thread, trying a few times if the database can't be
+     * reached.
+     */
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        flush();
+        for (int attempt = 1; attempt < STOP_ATTEMPTS && getQueueDepth() > 0; attempt++) {
+            try {
+                Thread.sleep(MIN_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            flush();
+        }
+        if (getQueueDepth() > 0) {
+            WarpLogger.severe(getQueueDepth() + " warp changes could not be saved");
+        }
+    }
+
+    void enqueue(WarpChange change) {
+        queue.add(change);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (pendingCount > 0) {
+                // the last write failed, new changes are merged on the retry
+                try {
+                    Thread.sleep(getRetryMillis());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                flush(null);
+                continue;
+            }
+            WarpChange first;
+            try {
+                first = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (WarpSettings.writeBehindDelay > 0) {
+                try {
+                    // give following changes the chance to be merged
+                    Thread.sleep(WarpSettings.writeBehindDelay);
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+            }
+            flush(first);
+        }
+    }
+
+    /**
+     * Writes all queued changes in one transaction. Safe to call from any
+     * thread.
+     */
+    public void flush() {
+        flush(null);
+    }
+
+    private void flush(WarpChange first) {
+        synchronized (flushLock) {
+            ArrayList<WarpChange> changes = new ArrayList<WarpChange>();
+            if (first != null) {
+                changes.add(first);
+            }
+            queue.drainTo(changes);
+            for (WarpChange change : changes) {
+                WarpChange existing = pending.get(change.getId());
+                if (existing == null) {
+                    pending.put(change.getId(), change);
+                } else if (!existing.merge(change)) {
+                    pending.remove(change.getId());
+                }
+            }
+            pendingCount = pending.size();
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            try {
+                write(pending.values());
+                writtenChanges += pending.size();
+                pending.clear();
+                failures.clear();
+                failedAttempts = 0;
+            } catch (SQLException ex) {
+                writeEach();
+            }
+            pendingCount = pending.size();
+            lastFlushMillis = System.currentTimeMillis() - start;
+            maxFlushMillis = Math.max(maxFlushMillis, lastFlushMillis);
+        }
+    }
+
+    /**
+     * Writes the pending changes one by one after their batch failed. Stops
+     * at the first change that fails because the database can't be reached.
+     * A change that keeps failing that way although other changes were
+     * written in the meantime is dropped after a few attempts.
+     */
+    private void writeEach() {
+        boolean written = false;
+        Iterator<WarpChange> it = pending.values().iterator();
+        while (it.hasNext()) {
+            WarpChange change = it.next();
+            try {
+                write(Collections.singletonList(change));
+                it.remove();
+                failures.remove(change.getId());
+                writtenChanges++;
+                written = true;
+            } catch (SQLException ex) {
+                if (!isTransient(ex)) {
+                    it.remove();
+                    failures.remove(change.getId());
+                    WarpLogger.severe("Dropping the change of warp " + change.getId() + ", the database refused it", ex);
+                    continue;
+                }
+                Failure failure = failures.get(change.getId());
+                if (failure == null) {
+                    failure = new Failure(writtenChanges);
+                    failures.put(change.getId(), failure);
+                }
+                failure.attempts++;
+                if (failure.attempts >= MAX_CHANGE_ATTEMPTS && writtenChanges > failure.writtenBefore) {
+                    it.remove();
+                    failures.remove(change.getId());
+                    WarpLogger.severe("Dropping the change of warp " + change.getId() + " after " + failure.attempts
+                            + " attempts", ex);
+                    continue;
+                }
+                if (!written) {
+                    // moved to the end, so the next attempt doesn't start with it again
+                    it.remove();
+                    pending.put(change.getId(), change);
+                }
+                failedAttempts++;
+                WarpLogger.severe("Warp Write Exception, will retry " + pending.size() + " changes in "
+                        + getRetryMillis() / 1000 + "s", ex);
+                return;
+            }
+        }
+        failedAttempts = 0;
+    }
+
+    /**
+     * Whether the error is about the connection or the transaction (SQL
+     * states of class 08 and 40), so the same change might succeed later.
+     */
+    private static boolean isTransient(SQLException ex) {
+        String state = ex.getSQLState();
+        if (state != null && state.length() >= 2) {
+            return state.startsWith("08") || state.startsWith("40");
+        }
+        return !(ex instanceof SQLNonTransientException);
+    }
+
+    /**
+     * Doubles the delay with every failed attempt in a row.
+     */
+    private long getRetryMillis() {
+        int doublings = Math.min(Math.max(failedAttempts - 1, 0), 6);
+        return Math.min(MIN_RETRY_MILLIS << doublings, MAX_RETRY_MILLIS);
+    }
+
+    private void write(Iterable<WarpChange> changes) throws SQLException {
+        List<WarpChange> deletes = new ArrayList<WarpChange>();
+        List<WarpChange> inserts = new ArrayList<WarpChange>();
+        Map<String, List<WarpChange>> updates = new LinkedHashMap<String, List<WarpChange>>();
+        for (WarpChange change : changes) {
+            switch (change.getKind()) {
+            case DELETE:
+                deletes.add(change);
+                break;
+            case INSERT:
+                if (change.isDeleteFirst()) {
+                    deletes.add(change);
+                }
+                inserts.add(change);
+                break;
+            case UPDATE:
+                String sql = updateStatement(change);
+                List<WarpChange> batch = updates.get(sql);
+                if (batch == null) {
+                    batch = new ArrayList<WarpChange>();
+                    updates.put(sql, batch);
+                }
+                batch.add(change);
+                break;
+            }
+        }
+
+        PooledConnection conn = ConnectionManager.borrowConnection();
+        try {
+            if (!deletes.isEmpty()) {
+                PreparedStatement ps = conn.prepareStatement("DELETE FROM warpTable WHERE id = ?");
+                for (WarpChange change : deletes) {
+                    ps.setInt(1, change.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            if (!inserts.isEmpty()) {
+                PreparedStatement ps = conn.prepareStatement("INSERT INTO warpTable (id, name, creator, world, x, y, z, yaw, pitch, publicAll, permissions, welcomeMessage) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)");
+                for (WarpChange change : inserts) {
+                    ps.setInt(1, change.getId());
+                    change.bind(ps, 2);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            for (Map.Entry<String, List<WarpChange>> entry : updates.entrySet()) {
+                PreparedStatement ps = conn.prepareStatement(entry.getKey());
+                for (WarpChange change : entry.getValue()) {
+                    int next = change.bind(ps, 1);
+                    ps.setInt(next, change.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.getConnection().commit();
+        } catch (SQLException ex) {
+            try {
+                conn.getConnection().rollback();
+            } catch (SQLException e) {
+                WarpLogger.severe("Warp Write Exception (on rollback)", e);
+            }
+            if (isTransient(ex)) {
+                // the connection might be gone, don't hand it out again
+                ConnectionManager.invalidateConnection(conn);
+            } else {
+                ConnectionManager.releaseConnection(conn);
+            }
+            throw ex;
+        }
+        ConnectionManager.releaseConnection(conn);
+    }
+
+    private static String updateStatement(WarpChange change) {
+        StringBuilder sql = new StringBuilder("UPDATE warpTable SET ");
+        boolean first = true;
+        for (WarpChange.Column column : change.getValues().keySet()) {
+            if (!first) {
+                sql.append(", ");
+            }
+            sql.append(column.getName()).append(" = ?");
+            first = false;
+        }
+        return sql.append(" WHERE id = ?").toString();
+    }
+
+    /**
+     * The number of changes that are not written yet.
+     */
+    public int getQueueDepth() {
+        return queue.size() + pendingCount;
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public long getMaxFlushMillis() {
+        return maxFlushMillis;
+    }
+
+    public long getWrittenChanges() {
+        return writtenChanges;
+    }
+
+    private static class Failure {
+        private final long writtenBefore;
+        private int attempts;
+
+        private Failure(long writtenBefore) {
+            this.writtenBefore = writtenBefore;
+        }
+    }
+}
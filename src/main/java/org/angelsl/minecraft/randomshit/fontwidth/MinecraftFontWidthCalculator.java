@@ -22,18 +22,49 @@ public class MinecraftFontWidthCalculator {
 			6, 6, 6, 2, 6, 6, 8, 9, 9, 6, 6, 6, 8, 8, 6, 8, 8, 8, 8, 8, 6, 6, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 6, 9,
 			9, 9, 5, 9, 9, 8, 7, 7, 8, 7, 8, 8, 8, 7, 8, 8, 7, 9, 9, 6, 7, 7, 7, 7, 7, 9, 6, 7, 8, 7, 6, 6, 9, 7, 6, 7, 1 };
 
-	public static int getStringWidth(String s) {
+	/**
+	 * Widths indexed directly by character, built from the tables above. The
+	 * first occurrence in charWidthIndexIndex wins, like with indexOf.
+	 */
+	private static final byte[] widthTable;
+
+	static {
+		char max = 0;
+		for (int k = 0; k < charWidthIndexIndex.length(); k++) {
+			max = (char) Math.max(max, charWidthIndexIndex.charAt(k));
+		}
+		widthTable = new byte[max + 1];
+		boolean[] seen = new boolean[max + 1];
+		for (int k = 0; k < charWidthIndexIndex.length(); k++) {
+			char c = charWidthIndexIndex.charAt(k);
+			if (!seen[c]) {
+				seen[c] = true;
+				widthTable[c] = (byte) charWidths[k];
+			}
+		}
+		widthTable['\247'] = 0;
+	}
+
+	public static int getStringWidth(CharSequence s) {
+		if (s == null)
+			return 0;
+		return getStringWidth(s, 0, s.length());
+	}
+
+	/**
+	 * The width of the characters from start (inclusive) to end (exclusive),
+	 * so parts of a string can be measured without copying them.
+	 */
+	public static int getStringWidth(CharSequence s, int start, int end) {
 		int i = 0;
-		if (s != null)
-			for (int j = 0; j < s.length(); j++)
-				i += getCharWidth(s.charAt(j));
+		for (int j = start; j < end; j++)
+			i += getCharWidth(s.charAt(j));
 		return i;
 	}
 
 	public static int getCharWidth(char c) {
-		int k = charWidthIndexIndex.indexOf(c);
-		if (c != '\247' && k >= 0)
-			return charWidths[k];
+		if (c < widthTable.length)
+			return widthTable[c];
 		return 0;
 	}
-}
\ No newline at end of file
+}